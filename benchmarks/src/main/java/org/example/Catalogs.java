@@ -0,0 +1,58 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic holiday catalogs for the benchmarks. The same size and seed always produce the same catalog,
+ * so results of different runs can be compared.
+ */
+public class Catalogs {
+    private static final String[] COUNTRIES = {"Greece", "Switzerland", "Italy", "France", "Spain", "Lithuania", "Japan", "Norway"};
+    private static final String[] CITIES = {"Mykonos", "Zermatt", "Rome", "Paris", "Barcelona", "Vilnius", "Kyoto", "Bergen"};
+    private static final String[] SEASONS = {"Spring", "Summer", "Autumn", "Winter"};
+    private static final String[] DURATIONS = {"3 days", "5 days", "7 days", "10 days", "14 days"};
+
+    /**
+     * Creates a catalog of holidays with IDs 1 to size.
+     *
+     * @param size the number of holidays
+     * @param ratingsPerHoliday the number of raw ratings each holiday gets
+     * @return the holidays in ID order
+     */
+    public static List<Holiday> create(int size, int ratingsPerHoliday) {
+        Random random = new Random(42);
+        List<Holiday> holidays = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            int place = random.nextInt(COUNTRIES.length);
+            int[] ratings = new int[ratingsPerHoliday];
+            for (int j = 0; j < ratings.length; j++) {
+                ratings[j] = 1 + random.nextInt(5);
+            }
+            Holiday holiday = new Holiday("Holiday " + i, COUNTRIES[place], CITIES[place],
+                    DURATIONS[random.nextInt(DURATIONS.length)], SEASONS[random.nextInt(SEASONS.length)],
+                    "Synthetic holiday number " + i + " with a description of typical length for the catalog.",
+                    100 + random.nextInt(5000) + random.nextInt(100) / 100.0,
+                    new String[]{"photo" + i + "a.jpg", "photo" + i + "b.jpg"}, ratings);
+            holiday.setId(i);
+            holidays.add(holiday);
+        }
+        return holidays;
+    }
+
+    /**
+     * Creates ratings spread evenly over 1 to 5 stars.
+     *
+     * @param size the number of ratings
+     * @return the ratings
+     */
+    public static int[] ratings(int size) {
+        Random random = new Random(42);
+        int[] ratings = new int[size];
+        for (int i = 0; i < size; i++) {
+            ratings[i] = 1 + random.nextInt(5);
+        }
+        return ratings;
+    }
+}
@@ -0,0 +1,177 @@
+package org.example;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Drives the real HTTP server with concurrent clients and reports latency percentiles and throughput per endpoint.
+ * Without "--url" the server is started in this JVM on port 8000 with a synthetic catalog in a temporary directory.
+ *
+ * Example:
+ * java -cp target/benchmarks.jar org.example.LoadGenerator --clients 32 --seconds 10 --size 100000
+ * java -cp target/benchmarks.jar org.example.LoadGenerator --url http://localhost:8000 --size 12
+ */
+public class LoadGenerator {
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String baseUrl;
+    private final int clients;
+    private final int seconds;
+
+    public LoadGenerator(String baseUrl, int clients, int seconds) {
+        this.baseUrl = baseUrl;
+        this.clients = clients;
+        this.seconds = seconds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int clients = 16;
+        int seconds = 10;
+        int size = 10_000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--url" -> url = args[i + 1];
+                case "--clients" -> clients = Integer.parseInt(args[i + 1]);
+                case "--seconds" -> seconds = Integer.parseInt(args[i + 1]);
+                case "--size" -> size = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (url == null) {
+            startServer(size);
+            url = "http://localhost:8000";
+        }
+
+        int catalogSize = size;
+        LoadGenerator generator = new LoadGenerator(url, clients, seconds);
+        System.out.printf("%-16s %10s %10s %10s %8s%n", "endpoint", "req/s", "p50 ms", "p99 ms", "errors");
+        generator.run("/getHoliday", "GET", () -> "/getHoliday?id=" + randomId(catalogSize));
+        generator.run("/getHolidays", "GET", () -> "/getHolidays?limit=100&offset=" + ThreadLocalRandom.current().nextInt(catalogSize));
+        generator.run("/getHolidays all", "GET", () -> "/getHolidays");
+        generator.run("/searchHolidays", "GET", () -> "/searchHolidays?country=Greece&maxPrice=2000&limit=50");
+        generator.run("/findHolidays", "GET", () -> "/findHolidays?q=synthetic+holiday&limit=20");
+        generator.run("/topHolidays", "GET", () -> "/topHolidays?by=average_rating&n=10");
+        generator.run("/rateHoliday", "POST", () -> "/rateHoliday?id=" + randomId(catalogSize)
+                + "&rating=" + (1 + ThreadLocalRandom.current().nextInt(5)));
+        System.exit(0);
+    }
+
+    /**
+     * Sends requests from all clients for the configured time and prints the results of one endpoint.
+     *
+     * @param name the name printed in the report
+     * @param method the HTTP method, "GET" or "POST"
+     * @param paths creates the path and query of each request
+     */
+    public void run(String name, String method, Supplier<String> paths) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        Worker[] workers = new Worker[clients];
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            workers[i] = new Worker(method, paths, deadline);
+            threads.add(Thread.ofPlatform().name("load-" + i).start(workers[i]));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int total = 0;
+        long errors = 0;
+        for (Worker worker : workers) {
+            total += worker.count;
+            errors += worker.errors;
+        }
+        long[] latencies = new long[total];
+        int position = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, position, worker.count);
+            position += worker.count;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-16s %10.0f %10.3f %10.3f %8d%n", name, (double) total / seconds,
+                percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6, errors);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    private static long randomId(int size) {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+
+    /**
+     * Writes a synthetic catalog to a temporary directory and starts the server on it.
+     */
+    private static void startServer(int size) throws IOException {
+        Path directory = Files.createTempDirectory("holiday-load");
+        Path dataFile = directory.resolve("holidays.json");
+        try (Writer writer = Files.newBufferedWriter(dataFile, StandardCharsets.UTF_8)) {
+            new Gson().toJson(Catalogs.create(size, 5), writer);
+        }
+        System.setProperty("holidays.file", dataFile.toString());
+        System.setProperty("holidays.walFile", directory.resolve("holidays.log").toString());
+        Main.main(new String[0]);
+    }
+
+    /**
+     * One client sending requests back to back and recording the latency of each.
+     */
+    private class Worker implements Runnable {
+        private final String method;
+        private final Supplier<String> paths;
+        private final long deadline;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        Worker(String method, Supplier<String> paths, long deadline) {
+            this.method = method;
+            this.paths = paths;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < deadline) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + paths.get()))
+                        .method(method, HttpRequest.BodyPublishers.noBody())
+                        .build();
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() >= 400) {
+                        errors++;
+                    }
+                } catch (IOException e) {
+                    errors++;
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+        }
+    }
+}
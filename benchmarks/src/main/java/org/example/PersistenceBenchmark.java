@@ -0,0 +1,89 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Saving the catalog to disk and loading it at startup, from "holidays.json" and from the binary snapshot.
+ * Files are written to a temporary directory that is removed after the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private Path directory;
+    private HolidayRepository repository;
+    private HolidayPersistence persistence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("holiday-bench");
+        Path dataFile = directory.resolve("holidays.json");
+        Path binaryFile = directory.resolve("holidays.bin");
+        System.setProperty("holidays.file", dataFile.toString());
+        System.setProperty("holidays.binarySnapshotFile", binaryFile.toString());
+
+        repository = new HolidayRepository(Catalogs.create(size, 5));
+        // Flushes are only triggered by the benchmark itself
+        persistence = new HolidayPersistence(repository, dataFile, Long.MAX_VALUE / 2, Long.MAX_VALUE);
+        persistence.setBinarySnapshotFile(binaryFile);
+        persistence.markDirty();
+        persistence.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        persistence.close();
+        System.clearProperty("holidays.binarySnapshot");
+        System.clearProperty("holidays.file");
+        System.clearProperty("holidays.binarySnapshotFile");
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void saveHolidays() throws IOException {
+        persistence.markDirty();
+        persistence.flush();
+    }
+
+    @Benchmark
+    public List<Holiday> loadHolidaysJson() {
+        System.clearProperty("holidays.binarySnapshot");
+        return Main.loadHolidays();
+    }
+
+    @Benchmark
+    public List<Holiday> loadHolidaysBinary() {
+        System.setProperty("holidays.binarySnapshot", "true");
+        return Main.loadHolidays();
+    }
+}
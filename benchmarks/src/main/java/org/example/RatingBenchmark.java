@@ -0,0 +1,56 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average rating of a holiday from its raw ratings array, compared with the running aggregate
+ * and the histogram used in compact modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int ratings;
+
+    private int[] rawRatings;
+    private RatingCalculator.RatingAggregate aggregate;
+    private long[] histogram;
+
+    @Setup
+    public void setUp() {
+        rawRatings = Catalogs.ratings(ratings);
+        aggregate = RatingCalculator.RatingAggregate.of(rawRatings, null);
+        histogram = aggregate.getDistribution();
+    }
+
+    @Benchmark
+    public double calculateAverageRating() {
+        return RatingCalculator.calculateAverageRating(rawRatings);
+    }
+
+    @Benchmark
+    public double aggregateAverage() {
+        return aggregate.getAverage();
+    }
+
+    @Benchmark
+    public double histogramAverage() {
+        return RatingCalculator.averageOf(histogram);
+    }
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in the repository and request query parsing, the work done before every "/getHoliday" response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private HolidayRepository repository;
+    private String query = "title=Summer+Beach+Getaway&country=Greece&city=Mykonos&duration=7+days"
+            + "&season=Summer&description=Relax+on+the+beach&price=1299.99&photos=beach.jpg,village.jpg&id=42";
+
+    @Setup
+    public void setUp() {
+        repository = new HolidayRepository(Catalogs.create(size, 5));
+    }
+
+    @Benchmark
+    public Holiday findById() {
+        return repository.findById(1 + ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public List<Holiday> getPage() {
+        return repository.getPage(ThreadLocalRandom.current().nextInt(size), 100);
+    }
+
+    @Benchmark
+    public long queryParser() {
+        return QueryParser.getLong(query, "id", QueryParser.INVALID_LONG) + QueryParser.getInt(query, "limit", 0);
+    }
+
+    @Benchmark
+    public String queryParserString() {
+        return QueryParser.get(query, "title");
+    }
+}
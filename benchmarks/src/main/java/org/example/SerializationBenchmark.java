@@ -0,0 +1,92 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of the catalog and of a single holiday, with Gson as in the original handlers
+ * and with the streaming {@link HolidayJsonWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private final Gson gson = new Gson();
+    private List<Holiday> holidays;
+    private Holiday holiday;
+
+    @Setup
+    public void setUp() {
+        // Serialize the holidays as the repository stores them, with their average ratings set
+        HolidayRepository repository = new HolidayRepository(Catalogs.create(size, 5));
+        holidays = repository.getAll();
+        holiday = holidays.get(size / 2);
+    }
+
+    @Benchmark
+    public String gsonList() {
+        return gson.toJson(holidays);
+    }
+
+    @Benchmark
+    public String gsonSingle() {
+        return gson.toJson(holiday);
+    }
+
+    @Benchmark
+    public void streamList(Blackhole blackhole) throws IOException {
+        try (JsonWriter writer = HolidayJsonWriter.open(new OutputStreamWriter(new BlackholeOutputStream(blackhole), StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            for (Holiday value : holidays) {
+                HolidayJsonWriter.write(writer, value);
+            }
+            writer.endArray();
+        }
+    }
+
+    /**
+     * Discards the written bytes without letting the JIT remove the writing.
+     */
+    private static class BlackholeOutputStream extends OutputStream {
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            blackhole.consume(bytes);
+        }
+    }
+}
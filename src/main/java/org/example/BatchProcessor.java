@@ -0,0 +1,288 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a batch of create, update, delete, rate and reset operations in one pass.
+ * Operations are read one by one from a JSON array or from newline-delimited JSON (NDJSON).
+ * All creates of a batch share a single ID range reservation, and the whole batch is saved with
+ * a single persistence call, so bulk imports are limited by parsing rather than by file I/O.
+ * The body is parsed strictly: NaN and infinite numbers, unquoted names and trailing data reject the whole batch.
+ * An update changes only the fields it gives and keeps the stored values of the others.
+ *
+ * Example body:
+ * [{"op":"create","title":"City Break","country":"France","city":"Paris","duration":"3 days",
+ *   "season":"Spring","description":"...","price":499.0,"photos":["paris.jpg"]},
+ *  {"op":"update","id":3,"version":2,"title":"City Break","price":549.0},
+ *  {"op":"rate","id":1,"rating":5},
+ *  {"op":"delete","id":2}]
+ */
+public class BatchProcessor {
+    private final HolidayRepository repository;
+    private final HolidayStore store;
+    private final ResponseCache responseCache;
+    private final Gson gson = new Gson();
+
+    public BatchProcessor(HolidayRepository repository, HolidayStore store, ResponseCache responseCache) {
+        this.repository = repository;
+        this.store = store;
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Reads all operations from the body, applies them and writes one result per operation, in input order.
+     * Creates are applied first, as one block, because no other operation can refer to their new IDs.
+     * Each result holds the operation's "index", an HTTP-like "status" and, for creates, the new "id".
+     *
+     * @param body the request body, a JSON array or NDJSON
+     * @param results the writer that receives the JSON array of results
+     * @throws IOException if the body cannot be read or the changes cannot be saved
+     * @throws JsonParseException if the body is empty or not valid JSON
+     */
+    public void process(Reader body, JsonWriter results) throws IOException {
+        List<Operation> operations = readOperations(body);
+        int[] statuses = new int[operations.size()];
+        long[] ids = new long[operations.size()];
+
+        List<Holiday> created = new ArrayList<>();
+        List<Integer> createdPositions = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            Operation operation = operations.get(i);
+            if ("create".equals(operation.op)) {
+                if (!operation.hasValidPrice()) {
+                    statuses[i] = 400;
+                } else {
+                    created.add(operation.toHoliday());
+                    createdPositions.add(i);
+                }
+            }
+        }
+        if (!created.isEmpty()) {
+            long firstId = repository.addAll(created);
+            for (int i = 0; i < createdPositions.size(); i++) {
+                statuses[createdPositions.get(i)] = 200;
+                ids[createdPositions.get(i)] = firstId + i;
+            }
+        }
+
+        for (int i = 0; i < operations.size(); i++) {
+            Operation operation = operations.get(i);
+            if (!"create".equals(operation.op)) {
+                statuses[i] = apply(operation);
+                ids[i] = operation.id;
+            }
+        }
+
+        long changes = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            if (statuses[i] == 200) {
+                responseCache.invalidate(ids[i]);
+                changes++;
+            }
+        }
+        if (changes > 0) {
+            store.markDirty(changes);
+        }
+
+        results.beginArray();
+        for (int i = 0; i < operations.size(); i++) {
+            results.beginObject();
+            results.name("index").value(i);
+            results.name("status").value(statuses[i]);
+            if (statuses[i] == 200 && "create".equals(operations.get(i).op)) {
+                results.name("id").value(ids[i]);
+            }
+            results.endObject();
+        }
+        results.endArray();
+    }
+
+    /**
+     * Reads the operations of a JSON array, or of NDJSON with one operation per line.
+     * Syntax errors, including an empty or truncated body, are reported as {@link JsonParseException},
+     * so they are answered with 400 like any other invalid body.
+     */
+    private List<Operation> readOperations(Reader body) throws IOException {
+        BufferedReader lines = new BufferedReader(body);
+        List<Operation> operations = new ArrayList<>();
+        try {
+            int first = peekNonWhitespace(lines);
+            if (first == -1) {
+                throw new JsonParseException("Empty batch");
+            }
+            if (first == '[') {
+                JsonReader reader = strictReader(lines);
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    operations.add(readOperation(reader));
+                }
+                reader.endArray();
+                expectEnd(reader);
+            } else {
+                // Strict parsing allows a single top-level value, so each NDJSON line gets its own reader
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonReader reader = strictReader(new StringReader(line));
+                    operations.add(readOperation(reader));
+                    expectEnd(reader);
+                }
+            }
+        } catch (MalformedJsonException | EOFException e) {
+            throw new JsonParseException(e);
+        }
+        return operations;
+    }
+
+    private static JsonReader strictReader(Reader reader) {
+        JsonReader jsonReader = new JsonReader(reader);
+        // Explicitly strict; Gson reads the default legacy mode leniently, which lets NaN and unquoted names through
+        jsonReader.setStrictness(Strictness.STRICT);
+        return jsonReader;
+    }
+
+    private static void expectEnd(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonParseException("Unexpected data after the batch at " + reader.getPath());
+        }
+    }
+
+    /**
+     * Returns the first character that is not whitespace without consuming it, or -1 at the end of the body.
+     */
+    private static int peekNonWhitespace(BufferedReader reader) throws IOException {
+        while (true) {
+            reader.mark(1);
+            int c = reader.read();
+            if (c == -1 || !Character.isWhitespace(c)) {
+                reader.reset();
+                return c;
+            }
+        }
+    }
+
+    private Operation readOperation(JsonReader reader) {
+        Operation operation = gson.fromJson(reader, Operation.class);
+        // A null element becomes an operation without "op", which is reported as invalid
+        return operation != null ? operation : new Operation();
+    }
+
+    private int apply(Operation operation) {
+        if (operation.op == null) {
+            return 400;
+        }
+        boolean found;
+        switch (operation.op) {
+            case "update" -> {
+                if (operation.price != null && !operation.hasValidPrice()) {
+                    return 400;
+                }
+                if (operation.version != null && operation.version < 0) {
+                    return 400;
+                }
+                return update(operation);
+            }
+            case "delete" -> found = repository.remove(operation.id) != null;
+            case "rate" -> {
+                if (operation.rating < RatingCalculator.MIN_RATING || operation.rating > RatingCalculator.MAX_RATING) {
+                    return 400;
+                }
+                found = repository.rate(operation.id, operation.rating);
+            }
+            case "reset" -> found = repository.resetRatings(operation.id);
+            default -> {
+                return 400;
+            }
+        }
+        return found ? 200 : 404;
+    }
+
+    /**
+     * Merges the given fields of an update into the stored holiday. The merged holiday is saved only if the
+     * stored one still has the version it was merged with, so a concurrent edit is never overwritten;
+     * without a "version" in the operation the merge is then simply repeated on the new version.
+     *
+     * @return 200, 404 if there is no such holiday, or 409 if it does not have the operation's version
+     */
+    private int update(Operation operation) {
+        while (true) {
+            Holiday current = repository.findById(operation.id);
+            if (current == null) {
+                return 404;
+            }
+            if (operation.version != null && current.getVersion() != operation.version) {
+                return 409;
+            }
+            HolidayRepository.UpdateResult result =
+                    repository.update(operation.id, operation.mergeInto(current), current.getVersion());
+            if (result == HolidayRepository.UpdateResult.UPDATED) {
+                return 200;
+            }
+            if (result == HolidayRepository.UpdateResult.NOT_FOUND) {
+                return 404;
+            }
+        }
+    }
+
+    /**
+     * One operation of a batch, as read from the request body.
+     */
+    private static class Operation {
+        private String op;
+        private long id;
+        private int rating;
+        private Long version;
+        private String title;
+        private String country;
+        private String city;
+        private String duration;
+        private String season;
+        private String description;
+        private Double price;
+        private String[] photos;
+
+        /**
+         * Checks the price as /createHoliday does: it must be given and finite.
+         */
+        boolean hasValidPrice() {
+            return price != null && Double.isFinite(price);
+        }
+
+        Holiday toHoliday() {
+            return new Holiday(title, country, city, duration, season, description, price,
+                    photos == null ? new String[0] : photos, new int[0]);
+        }
+
+        /**
+         * Builds the new field values of an update: the fields given in the operation, and the stored ones otherwise.
+         */
+        Holiday mergeInto(Holiday stored) {
+            return new Holiday(
+                    title != null ? title : stored.getTitle(),
+                    country != null ? country : stored.getCountry(),
+                    city != null ? city : stored.getCity(),
+                    duration != null ? duration : stored.getDuration(),
+                    season != null ? season : stored.getSeason(),
+                    description != null ? description : stored.getDescription(),
+                    price != null ? price : stored.getPrice(),
+                    photos != null ? photos : stored.getPhotos(),
+                    null);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of the catalog, written next to "holidays.json" so the server starts faster.
+ * Reading it needs no JSON parsing: the file is memory-mapped and read field by field.
+ *
+ * <p>Layout, all numbers big-endian:
+ * <pre>
+ * int magic "HLSN", int version, long log sequence (since version 3)
+ * int dictionary size, then the dictionary strings
+ * int holiday count, then per holiday:
+ *   long id, long version (since version 2), string title, int country, int city, string duration, int season, string description,
+ *   double price, int photo count + strings,
+ *   byte rating kind (0 none, 1 raw ratings, 2 histogram), int count + ints or longs
+ * </pre>
+ * A string is an int byte length (-1 for null) followed by UTF-8 bytes. Country, city and season are
+ * stored once in the dictionary and referenced by their position in it (-1 for null), since most holidays
+ * share a few of them. Loaded holidays share the same String instances for these values as well.
+ */
+public class BinarySnapshot {
+    private static final int MAGIC = 0x484C534E;
+    private static final int VERSION = 3;
+    private static final byte NO_RATINGS = 0;
+    private static final byte RAW_RATINGS = 1;
+    private static final byte HISTOGRAM = 2;
+
+    /**
+     * Writes the holidays to a binary snapshot file.
+     *
+     * @param file the file to write, replaced if it exists
+     * @param holidays the holidays to write
+     * @param logSequence the sequence number of the last mutation log record the holidays contain
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, List<Holiday> holidays, long logSequence) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Holiday holiday : holidays) {
+            addToDictionary(dictionary, strings, holiday.getCountry());
+            addToDictionary(dictionary, strings, holiday.getCity());
+            addToDictionary(dictionary, strings, holiday.getSeason());
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logSequence);
+            out.writeInt(strings.size());
+            for (String string : strings) {
+                writeString(out, string);
+            }
+            out.writeInt(holidays.size());
+            for (Holiday holiday : holidays) {
+                out.writeLong(holiday.getId());
+                out.writeLong(holiday.getVersion());
+                writeString(out, holiday.getTitle());
+                out.writeInt(dictionaryIndex(dictionary, holiday.getCountry()));
+                out.writeInt(dictionaryIndex(dictionary, holiday.getCity()));
+                writeString(out, holiday.getDuration());
+                out.writeInt(dictionaryIndex(dictionary, holiday.getSeason()));
+                writeString(out, holiday.getDescription());
+                out.writeDouble(holiday.getPrice());
+                String[] photos = holiday.getPhotos();
+                out.writeInt(photos == null ? -1 : photos.length);
+                if (photos != null) {
+                    for (String photo : photos) {
+                        writeString(out, photo);
+                    }
+                }
+                writeRatings(out, holiday);
+            }
+        }
+    }
+
+    /**
+     * Reads a binary snapshot file by memory-mapping it.
+     *
+     * @param file the snapshot file
+     * @return the holidays, in file order, and the log sequence number stored with them
+     * @throws IOException if the file cannot be read, is larger than 2 GB or is not a valid snapshot
+     */
+    public static HolidayPersistence.Snapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return read(buffer);
+            } catch (RuntimeException e) {
+                // A truncated or corrupt file shows up as a buffer underflow or a bad length
+                throw new IOException("Invalid snapshot " + file + ": " + e, e);
+            }
+        }
+    }
+
+    private static HolidayPersistence.Snapshot read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a holiday snapshot");
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion < 1 || formatVersion > VERSION) {
+            throw new IOException("Unsupported snapshot version " + formatVersion);
+        }
+        long logSequence = formatVersion >= 3 ? buffer.getLong() : 0;
+        byte[] scratch = new byte[256];
+        String[] dictionary = new String[buffer.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(buffer, scratch);
+        }
+        int count = buffer.getInt();
+        List<Holiday> holidays = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = buffer.getLong();
+            long version = formatVersion >= 2 ? buffer.getLong() : 0;
+            String title = readString(buffer, scratch);
+            String country = fromDictionary(dictionary, buffer.getInt());
+            String city = fromDictionary(dictionary, buffer.getInt());
+            String duration = readString(buffer, scratch);
+            String season = fromDictionary(dictionary, buffer.getInt());
+            String description = readString(buffer, scratch);
+            double price = buffer.getDouble();
+            int photoCount = buffer.getInt();
+            String[] photos = null;
+            if (photoCount >= 0) {
+                photos = new String[photoCount];
+                for (int j = 0; j < photoCount; j++) {
+                    photos[j] = readString(buffer, scratch);
+                }
+            }
+            Holiday holiday = new Holiday(title, country, city, duration, season, description, price, photos, null);
+            holiday.setId(id);
+            holiday.setVersion(version);
+            readRatings(buffer, holiday);
+            holidays.add(holiday);
+        }
+        return new HolidayPersistence.Snapshot(holidays, logSequence);
+    }
+
+    private static void writeRatings(DataOutputStream out, Holiday holiday) throws IOException {
+        if (holiday.getRating() != null) {
+            out.writeByte(RAW_RATINGS);
+            out.writeInt(holiday.getRating().length);
+            for (int rating : holiday.getRating()) {
+                out.writeInt(rating);
+            }
+        } else if (holiday.getRatingHistogram() != null) {
+            out.writeByte(HISTOGRAM);
+            out.writeInt(holiday.getRatingHistogram().length);
+            for (long votes : holiday.getRatingHistogram()) {
+                out.writeLong(votes);
+            }
+        } else {
+            out.writeByte(NO_RATINGS);
+        }
+    }
+
+    private static void readRatings(ByteBuffer buffer, Holiday holiday) {
+        byte kind = buffer.get();
+        if (kind == RAW_RATINGS) {
+            int[] ratings = new int[buffer.getInt()];
+            buffer.asIntBuffer().get(ratings);
+            buffer.position(buffer.position() + ratings.length * Integer.BYTES);
+            holiday.setRating(ratings);
+        } else if (kind == HISTOGRAM) {
+            long[] histogram = new long[buffer.getInt()];
+            buffer.asLongBuffer().get(histogram);
+            buffer.position(buffer.position() + histogram.length * Long.BYTES);
+            holiday.setRatingHistogram(histogram);
+        }
+    }
+
+    private static void addToDictionary(Map<String, Integer> dictionary, List<String> strings, String value) {
+        if (value != null && !dictionary.containsKey(value)) {
+            dictionary.put(value, strings.size());
+            strings.add(value);
+        }
+    }
+
+    private static int dictionaryIndex(Map<String, Integer> dictionary, String value) {
+        return value == null ? -1 : dictionary.get(value);
+    }
+
+    private static String fromDictionary(String[] dictionary, int index) {
+        return index < 0 ? null : dictionary[index];
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,251 @@
+package org.example;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the most recent catalog changes as numbered events, so clients can follow the catalog
+ * instead of downloading it again, e.g. through "/changes".
+ * Events are recorded through {@link HolidayListener}, so changes made by batches and the vote queue appear too.
+ * Each event is serialized to JSON once, when it happens, and then sent as it is to every client.
+ *
+ * <p>The events are held in a ring buffer of fixed capacity. A client only keeps its position, a cursor,
+ * so a slow client holds no memory; if it falls so far behind that its next event has been overwritten,
+ * it is told to reset, i.e. to reload the catalog and continue from the current cursor.
+ * Cursors include a random epoch per server run, so a cursor from before a restart also leads to a reset
+ * instead of silently skipping events.
+ */
+public class ChangeFeed implements HolidayListener, AutoCloseable {
+    private static final int CREATED_FIELDS = HolidayJsonWriter.ALL_FIELDS;
+    // Updates never change ratings, and the raw rating arrays are the largest part of a holiday
+    private static final int UPDATED_FIELDS = HolidayJsonWriter.ALL_FIELDS
+            & ~(HolidayJsonWriter.RATING | HolidayJsonWriter.RATING_HISTOGRAM);
+    private static final int RATED_FIELDS = HolidayJsonWriter.ID | HolidayJsonWriter.RATING_HISTOGRAM
+            | HolidayJsonWriter.AVERAGE_RATING;
+
+    private final String epoch = Long.toUnsignedString(System.nanoTime() ^ System.currentTimeMillis(), 36);
+    private final Event[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private long lastSequence;
+    private boolean closed;
+
+    /**
+     * Creates an empty feed.
+     *
+     * @param capacity the number of most recent events kept
+     */
+    public ChangeFeed(int capacity) {
+        this.ring = new Event[Math.max(1, capacity)];
+    }
+
+    /**
+     * Registers for the repository's changes. Changes made before are not part of the feed.
+     * Must be called once, before the server starts accepting requests.
+     *
+     * @param repository the catalog to follow
+     */
+    public void attach(HolidayRepository repository) {
+        repository.addListener(this);
+    }
+
+    @Override
+    public void onCreated(Holiday holiday) {
+        append("created", holiday.getId(), null, holiday, CREATED_FIELDS);
+    }
+
+    @Override
+    public void onUpdated(Holiday holiday) {
+        append("updated", holiday.getId(), null, holiday, UPDATED_FIELDS);
+    }
+
+    @Override
+    public void onDeleted(Holiday holiday) {
+        append("deleted", holiday.getId(), null, null, 0);
+    }
+
+    @Override
+    public void onRated(Holiday holiday, int rating) {
+        append("rated", holiday.getId(), "\"rating\":" + rating, holiday, RATED_FIELDS);
+    }
+
+    @Override
+    public void onRatedBatch(Holiday holiday, long[] votes) {
+        StringBuilder extra = new StringBuilder("\"votes\":[");
+        for (int i = 0; i < votes.length; i++) {
+            extra.append(i > 0 ? "," : "").append(votes[i]);
+        }
+        append("rated", holiday.getId(), extra.append(']').toString(), holiday, RATED_FIELDS);
+    }
+
+    @Override
+    public void onRatingsReset(Holiday holiday) {
+        append("ratingsReset", holiday.getId(), null, holiday, RATED_FIELDS);
+    }
+
+    /**
+     * Returns the cursor of the newest event, from which a client sees only later events.
+     *
+     * @return the cursor
+     */
+    public String currentCursor() {
+        lock.lock();
+        try {
+            return cursor(lastSequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the events after a cursor, waiting up to the timeout if there are none yet.
+     *
+     * @param cursor the cursor of the last event the client has, e.g. from {@link Event#getCursor()}
+     * @param limit the maximum number of events returned
+     * @param timeoutMillis how long to wait for a first event; 0 returns at once
+     * @return the events in order, possibly none, or null if the client must reset because the cursor
+     *         is unknown or its following events have already been overwritten
+     */
+    public List<Event> read(String cursor, int limit, long timeoutMillis) {
+        long after = sequenceOf(cursor);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lock();
+        try {
+            if (after < 0 || after > lastSequence) {
+                return null;
+            }
+            while (lastSequence == after && !closed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                appended.awaitNanos(remaining);
+            }
+            long oldest = Math.max(1, lastSequence - ring.length + 1);
+            if (after + 1 < oldest) {
+                return null;
+            }
+            List<Event> events = new ArrayList<>((int) Math.min(limit, lastSequence - after));
+            for (long sequence = after + 1; sequence <= lastSequence && events.size() < limit; sequence++) {
+                events.add(ring[(int) (sequence % ring.length)]);
+            }
+            return events;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up all waiting clients, so open streams end.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Serializes the event outside the lock and numbers it inside, so events get their numbers in the order
+     * they are stored. Callbacks for one holiday arrive in order, so its events keep the order of its changes.
+     */
+    private void append(String type, long id, String extra, Holiday holiday, int fields) {
+        String body = "\"type\":\"" + type + "\",\"id\":" + id
+                + (extra != null ? "," + extra : "")
+                + (holiday != null ? ",\"holiday\":" + toJson(holiday, fields) : "")
+                + "}";
+        lock.lock();
+        try {
+            long sequence = ++lastSequence;
+            String cursor = cursor(sequence);
+            ring[(int) (sequence % ring.length)] = new Event(cursor, "{\"cursor\":\"" + cursor + "\"," + body);
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String toJson(Holiday holiday, int fields) {
+        StringWriter out = new StringWriter();
+        try (JsonWriter writer = HolidayJsonWriter.open(out)) {
+            HolidayJsonWriter.write(writer, holiday, fields);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private String cursor(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * Parses a cursor of this run.
+     *
+     * @return the sequence number, or -1 if the cursor is malformed or from another run
+     */
+    private long sequenceOf(String cursor) {
+        if (cursor == null || cursor.length() <= epoch.length() + 1 || !cursor.startsWith(epoch)
+                || cursor.charAt(epoch.length()) != '-') {
+            return -1;
+        }
+        long sequence = QueryParser.parseLong(cursor, epoch.length() + 1, cursor.length());
+        return sequence < 0 ? -1 : sequence;
+    }
+
+    /**
+     * One recorded change, already serialized.
+     */
+    public static class Event {
+        private final String cursor;
+        private final String json;
+
+        Event(String cursor, String json) {
+            this.cursor = cursor;
+            this.json = json;
+        }
+
+        /**
+         * Returns the position of this event, to be passed back to continue after it.
+         *
+         * @return the cursor
+         */
+        public String getCursor() {
+            return cursor;
+        }
+
+        /**
+         * Returns the event as a JSON object, e.g.
+         * {"cursor":"k3x9-12","type":"rated","id":3,"rating":4,"holiday":{"id":3,"average_rating":4.25}}.
+         *
+         * @return the JSON text
+         */
+        public String getJson() {
+            return json;
+        }
+    }
+}
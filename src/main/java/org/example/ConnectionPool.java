@@ -0,0 +1,119 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small bounded pool of JDBC connections. At most "size" connections are open at once;
+ * a caller that finds all of them in use waits up to the timeout instead of opening more,
+ * so a burst of requests cannot exhaust the database's connection limit.
+ * Connections are opened lazily and checked before reuse.
+ *
+ * Example:
+ * Connection connection = pool.borrow();
+ * try { ... } finally { pool.release(connection); }
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final ArrayBlockingQueue<Connection> idle;
+    private volatile boolean closed;
+
+    /**
+     * Creates the pool without opening any connection.
+     *
+     * @param url the JDBC URL, e.g. "jdbc:mysql://localhost:3306/holidays"
+     * @param user the database user
+     * @param password the database password
+     * @param size the maximum number of open connections
+     * @param timeoutMillis how long {@link #borrow()} waits for a free connection
+     */
+    public ConnectionPool(String url, String user, String password, int size, long timeoutMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(Math.max(1, size), true);
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, size));
+    }
+
+    /**
+     * Takes a connection from the pool, opening a new one if no idle connection is left.
+     *
+     * @return a connection in auto-commit mode; pass it to {@link #release(Connection)} when done
+     * @throws SQLException if no connection became free within the timeout or a connection could not be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        Connection connection = idle.poll();
+        try {
+            if (connection != null && !connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                closeQuietly(connection);
+                connection = null;
+            }
+            if (connection == null) {
+                connection = DriverManager.getConnection(url, user, password);
+            }
+            connection.setAutoCommit(true);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            if (connection != null) {
+                closeQuietly(connection);
+            }
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool. A connection that failed should still be released;
+     * it is checked before it is handed out again.
+     *
+     * @param connection the connection taken with {@link #borrow()}
+     */
+    public void release(Connection connection) {
+        if (closed || !idle.offer(connection)) {
+            closeQuietly(connection);
+        }
+        permits.release();
+    }
+
+    /**
+     * Closes all idle connections. Connections still borrowed are closed when they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing database connection: " + e);
+        }
+    }
+}
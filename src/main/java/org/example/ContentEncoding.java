@@ -0,0 +1,144 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Chooses and applies the compression of a response body from the request's "Accept-Encoding" header.
+ * Only gzip and deflate are offered, since the JDK compresses both without extra libraries.
+ * Quality values are honoured, so "gzip;q=0" turns gzip off; on a tie gzip is preferred,
+ * because some clients read "deflate" as raw deflate instead of the zlib format HTTP specifies.
+ *
+ * Example:
+ * String encoding = ContentEncoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+ */
+public class ContentEncoding {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    /** Bodies smaller than this are sent as they are; compressing them would barely save a packet. */
+    public static final int MIN_COMPRESSED_SIZE = 1024;
+
+    /**
+     * Picks the encoding for a response.
+     *
+     * @param acceptEncoding the "Accept-Encoding" request header, may be null
+     * @return {@link #GZIP}, {@link #DEFLATE}, or null to send the body uncompressed
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        int length = acceptEncoding.length();
+        int start = 0;
+        while (start < length) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int nameEnd = acceptEncoding.indexOf(';', start);
+            if (nameEnd < 0 || nameEnd > end) {
+                nameEnd = end;
+            }
+            double quality = quality(acceptEncoding, nameEnd, end);
+            if (matches(acceptEncoding, start, nameEnd, GZIP) || matches(acceptEncoding, start, nameEnd, "x-gzip")) {
+                gzip = quality;
+            } else if (matches(acceptEncoding, start, nameEnd, DEFLATE)) {
+                deflate = quality;
+            } else if (matches(acceptEncoding, start, nameEnd, "*")) {
+                any = quality;
+            }
+            start = end + 1;
+        }
+        if (gzip < 0) {
+            gzip = Math.max(0, any);
+        }
+        if (deflate < 0) {
+            deflate = Math.max(0, any);
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    /**
+     * Compresses a whole body.
+     *
+     * @param body the uncompressed bytes
+     * @param encoding {@link #GZIP} or {@link #DEFLATE}
+     * @return the compressed bytes
+     */
+    public static byte[] compress(byte[] body, String encoding) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream out = wrap(buffer, encoding)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Wraps a stream so that everything written to it is compressed, e.g. for a streamed response.
+     * Closing the returned stream finishes the compressed data and closes the wrapped stream.
+     *
+     * @param out the stream receiving the compressed bytes
+     * @param encoding {@link #GZIP} or {@link #DEFLATE}
+     * @return the compressing stream
+     * @throws IOException if the gzip header cannot be written
+     */
+    public static OutputStream wrap(OutputStream out, String encoding) throws IOException {
+        if (GZIP.equals(encoding)) {
+            return new GZIPOutputStream(out, 8192);
+        }
+        if (DEFLATE.equals(encoding)) {
+            // HTTP "deflate" is the zlib format, which is what a Deflater writes by default
+            return new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION), 8192) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+    }
+
+    private static boolean matches(String header, int start, int end, String name) {
+        while (start < end && header.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && header.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end - start == name.length() && header.regionMatches(true, start, name, 0, name.length());
+    }
+
+    /**
+     * Reads the "q" parameter of one list element.
+     *
+     * @return the quality, 1 if none is given, or 0 if it cannot be read
+     */
+    private static double quality(String header, int paramsStart, int end) {
+        int q = header.indexOf("q=", paramsStart);
+        if (q < 0 || q >= end) {
+            return 1;
+        }
+        try {
+            return Double.parseDouble(header.substring(q + 2, end).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
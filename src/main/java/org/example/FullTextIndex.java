@@ -0,0 +1,297 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index for keyword search over holiday title, description, city and country.
+ * Each holiday gets a dense document number, and each term maps to a posting list of document numbers
+ * and weighted term frequencies kept in primitive int arrays. Matches are ranked with BM25,
+ * where a term in the title counts three times and a term in the city or country twice.
+ *
+ * <p>Posting lists are only appended to. A changed holiday gets a new document number, and the old one is
+ * marked deleted in a bitset; once deleted documents outnumber live ones, the postings are compacted.
+ * Each posting list also counts its live documents, which is the document frequency BM25 needs;
+ * the list's length would include deleted documents until the next compaction.
+ */
+public class FullTextIndex implements HolidayListener {
+    private static final int TITLE_WEIGHT = 3;
+    private static final int PLACE_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final LongObjectMap<Integer> documents = new LongObjectMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] documentIds = new long[64];
+    private int[] documentLengths = new int[64];
+    // The posting lists each live document appears in, so their live counts can be lowered on removal
+    private Postings[][] documentTerms = new Postings[64][];
+    private int documentCount;
+    private int liveCount;
+    private long totalLength;
+
+    /**
+     * Indexes the current catalog and registers for its changes.
+     * Must be called once, before the server starts accepting requests.
+     *
+     * @param repository the catalog to index
+     */
+    public void attach(HolidayRepository repository) {
+        for (Holiday holiday : repository.getAll()) {
+            onCreated(holiday);
+        }
+        repository.addListener(this);
+    }
+
+    /**
+     * Splits text into lower case terms made of letters and digits.
+     *
+     * @param text the text, may be null
+     * @return the terms in order of appearance, with repetitions
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Finds the holidays that contain any of the query terms, best matches first.
+     *
+     * @param text the search text, e.g. "beach Mykonos"
+     * @param limit the maximum number of results
+     * @return the IDs of the best matching holidays
+     */
+    public List<Long> search(String text, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(text));
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            List<Double> idfs = new ArrayList<>();
+            for (String term : queryTerms) {
+                Postings postings = terms.get(term);
+                if (postings != null) {
+                    lists.add(postings);
+                    idfs.add(Math.log(1 + (liveCount - postings.live + 0.5) / (postings.live + 0.5)));
+                }
+            }
+            double averageLength = liveCount == 0 ? 1 : Math.max(1, (double) totalLength / liveCount);
+
+            // Merge the posting lists in document order and keep the best scores in a bounded heap
+            PriorityQueue<ScoredDocument> best = new PriorityQueue<>();
+            int[] positions = new int[lists.size()];
+            while (true) {
+                int document = Integer.MAX_VALUE;
+                for (int i = 0; i < lists.size(); i++) {
+                    if (positions[i] < lists.get(i).size) {
+                        document = Math.min(document, lists.get(i).documents[positions[i]]);
+                    }
+                }
+                if (document == Integer.MAX_VALUE) {
+                    break;
+                }
+                double score = 0;
+                double lengthNorm = K1 * (1 - B + B * documentLengths[document] / averageLength);
+                for (int i = 0; i < lists.size(); i++) {
+                    Postings postings = lists.get(i);
+                    if (positions[i] < postings.size && postings.documents[positions[i]] == document) {
+                        int frequency = postings.frequencies[positions[i]];
+                        score += idfs.get(i) * frequency * (K1 + 1) / (frequency + lengthNorm);
+                        positions[i]++;
+                    }
+                }
+                if (!deleted.get(document)) {
+                    best.add(new ScoredDocument(documentIds[document], score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            List<ScoredDocument> ranked = new ArrayList<>(best);
+            ranked.sort(null);
+            List<Long> result = new ArrayList<>(ranked.size());
+            for (int i = ranked.size() - 1; i >= 0; i--) {
+                result.add(ranked.get(i).id);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Holiday holiday) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTerms(frequencies, holiday.getTitle(), TITLE_WEIGHT);
+        addTerms(frequencies, holiday.getCity(), PLACE_WEIGHT);
+        addTerms(frequencies, holiday.getCountry(), PLACE_WEIGHT);
+        addTerms(frequencies, holiday.getDescription(), DESCRIPTION_WEIGHT);
+        lock.writeLock().lock();
+        try {
+            removeDocument(holiday.getId());
+            int document = documentCount++;
+            if (document == documentIds.length) {
+                documentIds = Arrays.copyOf(documentIds, document * 2);
+                documentLengths = Arrays.copyOf(documentLengths, document * 2);
+                documentTerms = Arrays.copyOf(documentTerms, document * 2);
+            }
+            int length = 0;
+            Postings[] documentPostings = new Postings[frequencies.size()];
+            int termCount = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Postings postings = terms.computeIfAbsent(entry.getKey(), term -> new Postings());
+                postings.add(document, entry.getValue());
+                documentPostings[termCount++] = postings;
+                length += entry.getValue();
+            }
+            documentIds[document] = holiday.getId();
+            documentLengths[document] = length;
+            documentTerms[document] = documentPostings;
+            documents.put(holiday.getId(), document);
+            liveCount++;
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onUpdated(Holiday holiday) {
+        onCreated(holiday);
+    }
+
+    @Override
+    public void onDeleted(Holiday holiday) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(holiday.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * Marks the document of a holiday as deleted. The caller must hold the write lock.
+     */
+    private void removeDocument(long id) {
+        Integer document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        deleted.set(document);
+        for (Postings postings : documentTerms[document]) {
+            postings.live--;
+        }
+        documentTerms[document] = null;
+        liveCount--;
+        totalLength -= documentLengths[document];
+        int deletedCount = documentCount - liveCount;
+        if (deletedCount >= MIN_DELETED_FOR_COMPACTION && deletedCount > liveCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Renumbers the live documents densely and drops deleted ones from every posting list.
+     * The caller must hold the write lock.
+     */
+    private void compact() {
+        int[] renumbered = new int[documentCount];
+        int next = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (deleted.get(document)) {
+                renumbered[document] = -1;
+            } else {
+                renumbered[document] = next;
+                documentIds[next] = documentIds[document];
+                documentLengths[next] = documentLengths[document];
+                documentTerms[next] = documentTerms[document];
+                documents.put(documentIds[next], next);
+                next++;
+            }
+        }
+        terms.values().removeIf(postings -> postings.renumber(renumbered) == 0);
+        Arrays.fill(documentTerms, next, documentCount, null);
+        documentCount = next;
+        deleted.clear();
+    }
+
+    /**
+     * The documents containing one term, in increasing document order.
+     */
+    private static class Postings {
+        private int[] documents = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+        // Documents in the list that are not deleted
+        private int live;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+
+        int renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int document = renumbered[documents[i]];
+                if (document >= 0) {
+                    documents[kept] = document;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+
+    private record ScoredDocument(long id, double score) implements Comparable<ScoredDocument> {
+        @Override
+        public int compareTo(ScoredDocument other) {
+            // Lower scores first; on equal scores the higher ID sorts first, so lower IDs rank higher
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Long.compare(other.id, id);
+        }
+    }
+}
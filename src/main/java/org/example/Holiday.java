@@ -15,8 +15,12 @@ public class Holiday {
     private double price;
     private String[] photos;
     private int[] rating;
+    @SerializedName("rating_histogram")
+    private long[] ratingHistogram;
     @SerializedName("average_rating")
     private double averageRating;
+    private long version;
+    private transient RatingCalculator.RatingAggregate ratingAggregate;
 
     public Holiday(String title, String country, String city, String duration, String season, String description, double price, String[] photos, int[] rating) {
 
@@ -32,6 +36,24 @@ public class Holiday {
     }
 
 
+    /**
+     * Creates a copy to apply a change to, so the stored holiday can be replaced as a whole.
+     * Arrays are shared, since a change replaces them with changed copies instead of changing them,
+     * so the copy and the original can both be read safely. The rating aggregate is shared as well;
+     * only the holiday's writer uses it, on the newest copy.
+     *
+     * @return a new holiday with the same field values
+     */
+    public Holiday copy() {
+        Holiday copy = new Holiday(title, country, city, duration, season, description, price, photos, rating);
+        copy.id = id;
+        copy.ratingHistogram = ratingHistogram;
+        copy.averageRating = averageRating;
+        copy.ratingAggregate = ratingAggregate;
+        copy.version = version;
+        return copy;
+    }
+
     public long getId() {
         return id;
     }
@@ -111,6 +133,27 @@ public class Holiday {
         this.rating = rating;
     }
 
+    /**
+     * Returns the number of votes per star, stored instead of the raw ratings in compact rating mode.
+     *
+     * @return the histogram, or null when the raw ratings are stored
+     */
+    public long[] getRatingHistogram() {
+        return ratingHistogram;
+    }
+
+    public void setRatingHistogram(long[] ratingHistogram) {
+        this.ratingHistogram = ratingHistogram;
+    }
+
+    public RatingCalculator.RatingAggregate getRatingAggregate() {
+        return ratingAggregate;
+    }
+
+    public void setRatingAggregate(RatingCalculator.RatingAggregate ratingAggregate) {
+        this.ratingAggregate = ratingAggregate;
+    }
+
     public void setAverageRating(double averageRating) {
         this.averageRating = averageRating;
     }
@@ -119,6 +162,20 @@ public class Holiday {
         return averageRating;
     }
 
+    /**
+     * Returns the number of times the holiday has been edited, used to detect conflicting edits.
+     * Ratings do not change the version.
+     *
+     * @return the version, 0 for a holiday that was never edited
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Holiday{" +
@@ -132,6 +189,7 @@ public class Holiday {
                 ", price=" + price +
                 ", photos=" + Arrays.toString(photos) +
                 ", rating=" + Arrays.toString(rating) +
+                ", version=" + version +
                 '}';
     }
 
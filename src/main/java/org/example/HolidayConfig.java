@@ -0,0 +1,319 @@
+package org.example;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Server settings read from system properties, so they can be changed with -D flags at startup.
+ *
+ * Example:
+ * java -Dholidays.executor=virtual -jar HolidayList.jar
+ */
+public class HolidayConfig {
+
+    /**
+     * Returns the catalog data file, set with the "holidays.file" property.
+     *
+     * @return the path of the data file, by default "holidays.json"
+     */
+    public static Path dataFile() {
+        return Path.of(System.getProperty("holidays.file", "holidays.json"));
+    }
+
+    /**
+     * Returns whether a binary snapshot is written next to the data file and preferred at startup,
+     * set with the "holidays.binarySnapshot" property.
+     *
+     * @return true if "holidays.binarySnapshot" is set to true
+     */
+    public static boolean binarySnapshotEnabled() {
+        return Boolean.getBoolean("holidays.binarySnapshot");
+    }
+
+    /**
+     * Returns the binary snapshot file, set with the "holidays.binarySnapshotFile" property.
+     *
+     * @return the path of the binary snapshot, by default "holidays.bin" next to the data file
+     */
+    public static Path binarySnapshotFile() {
+        String configured = System.getProperty("holidays.binarySnapshotFile");
+        return configured != null ? Path.of(configured) : dataFile().resolveSibling("holidays.bin");
+    }
+
+    /**
+     * Returns where the catalog is saved, set with the "holidays.store" property:
+     * "file" (default) for "holidays.json" and the mutation log, or "jdbc" for the database at {@link #jdbcUrl()}.
+     *
+     * @return the store mode in lower case
+     */
+    public static String store() {
+        return System.getProperty("holidays.store", "file").toLowerCase();
+    }
+
+    /**
+     * Returns the database used by the "jdbc" store, set with the "holidays.jdbcUrl" property.
+     * The default turns on "rewriteBatchedStatements", without which MySQL Connector/J sends each statement
+     * of a JDBC batch in its own round trip; keep it in a URL of your own.
+     *
+     * @return the JDBC URL, by default "jdbc:mysql://localhost:3306/holidays?rewriteBatchedStatements=true"
+     */
+    public static String jdbcUrl() {
+        return System.getProperty("holidays.jdbcUrl", "jdbc:mysql://localhost:3306/holidays?rewriteBatchedStatements=true");
+    }
+
+    /**
+     * Returns the database user, set with the "holidays.jdbcUser" property.
+     *
+     * @return the user, by default "root"
+     */
+    public static String jdbcUser() {
+        return System.getProperty("holidays.jdbcUser", "root");
+    }
+
+    /**
+     * Returns the database password, set with the "holidays.jdbcPassword" property.
+     *
+     * @return the password, by default empty
+     */
+    public static String jdbcPassword() {
+        return System.getProperty("holidays.jdbcPassword", "");
+    }
+
+    /**
+     * Returns the maximum number of open database connections, set with the "holidays.jdbcPoolSize" property.
+     *
+     * @return the pool size, by default 8
+     */
+    public static int jdbcPoolSize() {
+        return Integer.getInteger("holidays.jdbcPoolSize", 8);
+    }
+
+    /**
+     * Returns how long a request waits for a free database connection, set with the "holidays.jdbcTimeoutMs" property.
+     *
+     * @return the timeout in milliseconds, by default 5000
+     */
+    public static long jdbcTimeoutMillis() {
+        return Long.getLong("holidays.jdbcTimeoutMs", 5000);
+    }
+
+    /**
+     * Returns how often unsaved changes are written to disk, set with the "holidays.flushIntervalMs" property.
+     *
+     * @return the flush interval in milliseconds, by default 1000
+     */
+    public static long flushIntervalMillis() {
+        return Long.getLong("holidays.flushIntervalMs", 1000);
+    }
+
+    /**
+     * Returns the number of unsaved changes that triggers a write before the interval ends,
+     * set with the "holidays.flushThreshold" property.
+     *
+     * @return the change count threshold, by default 1000
+     */
+    public static long flushThreshold() {
+        return Long.getLong("holidays.flushThreshold", 1000);
+    }
+
+    /**
+     * Returns whether only rating histograms are stored instead of every single vote,
+     * set with the "holidays.compactRatings" property. Keeping every vote copies a holiday's
+     * votes on each new one, so it is only worth it when the raw votes are needed.
+     *
+     * @return false if "holidays.compactRatings" is set to false, true by default
+     */
+    public static boolean compactRatings() {
+        return Boolean.parseBoolean(System.getProperty("holidays.compactRatings", "true"));
+    }
+
+    /**
+     * Returns whether the catalog is kept in compact storage mode, set with the "holidays.compactStorage" property:
+     * repeated strings share one instance and ratings are kept as histograms only. Implies compact ratings.
+     *
+     * @return true if "holidays.compactStorage" is set to true
+     */
+    public static boolean compactStorage() {
+        return Boolean.getBoolean("holidays.compactStorage");
+    }
+
+    /**
+     * Returns whether "/getHolidays" streams the catalog instead of sending a cached response body,
+     * set with the "holidays.streamResponses" property. Streaming keeps memory per request flat for large catalogs.
+     *
+     * @return true if "holidays.streamResponses" is set to true
+     */
+    public static boolean streamResponses() {
+        return Boolean.getBoolean("holidays.streamResponses");
+    }
+
+    /**
+     * Returns whether "/rateHoliday" queues votes and answers 202 instead of applying them before answering,
+     * set with the "holidays.asyncVotes" property.
+     *
+     * @return true if "holidays.asyncVotes" is set to true
+     */
+    public static boolean asyncVotes() {
+        return Boolean.getBoolean("holidays.asyncVotes");
+    }
+
+    /**
+     * Returns the maximum number of queued votes, set with the "holidays.voteQueueCapacity" property.
+     *
+     * @return the queue capacity, by default 65536
+     */
+    public static int voteQueueCapacity() {
+        return Integer.getInteger("holidays.voteQueueCapacity", 65_536);
+    }
+
+    /**
+     * Returns what happens to a vote when the queue is full, set with the "holidays.voteBackpressure" property:
+     * "reject" (default) answers 503 at once, "block" makes the request wait up to "holidays.voteBlockTimeoutMs".
+     *
+     * @return the backpressure mode in lower case
+     */
+    public static String voteBackpressure() {
+        return System.getProperty("holidays.voteBackpressure", "reject").toLowerCase();
+    }
+
+    /**
+     * Returns how long a vote waits for space in a full queue in "block" mode,
+     * set with the "holidays.voteBlockTimeoutMs" property.
+     *
+     * @return the timeout in milliseconds, by default 1000
+     */
+    public static long voteBlockTimeoutMillis() {
+        return Long.getLong("holidays.voteBlockTimeoutMs", 1000);
+    }
+
+    /**
+     * Returns the maximum number of votes applied together, set with the "holidays.voteBatchSize" property.
+     *
+     * @return the batch size, by default 4096
+     */
+    public static int voteBatchSize() {
+        return Integer.getInteger("holidays.voteBatchSize", 4096);
+    }
+
+    /**
+     * Returns how long clients may reuse a catalog response without asking again,
+     * set with the "holidays.cacheMaxAge" property.
+     *
+     * @return the time in seconds, by default 0, which makes clients revalidate every time
+     */
+    public static long cacheMaxAgeSeconds() {
+        return Long.getLong("holidays.cacheMaxAge", 0);
+    }
+
+    /**
+     * Returns how much memory the cached single-holiday responses may take,
+     * set with the "holidays.responseCacheMaxBytes" property.
+     *
+     * @return the limit in bytes, by default 64 MiB
+     */
+    public static long responseCacheMaxBytes() {
+        return Long.getLong("holidays.responseCacheMaxBytes", 64L << 20);
+    }
+
+    /**
+     * Returns the number of recent changes kept for "/changes", set with the "holidays.changeFeedCapacity" property.
+     * Clients that fall further behind have to reload the catalog.
+     *
+     * @return the number of events, by default 10000
+     */
+    public static int changeFeedCapacity() {
+        return Integer.getInteger("holidays.changeFeedCapacity", 10_000);
+    }
+
+    /**
+     * Returns the maximum number of open "/changes" requests, set with the "holidays.changeFeedMaxClients" property.
+     *
+     * @return the number of clients, by default 256
+     */
+    public static int changeFeedMaxClients() {
+        return Integer.getInteger("holidays.changeFeedMaxClients", 256);
+    }
+
+    /**
+     * Returns whether changes are recorded in the append-only mutation log, set with the "holidays.wal" property.
+     *
+     * @return true unless "holidays.wal" is set to false
+     */
+    public static boolean mutationLogEnabled() {
+        return Boolean.parseBoolean(System.getProperty("holidays.wal", "true"));
+    }
+
+    /**
+     * Returns the mutation log file, set with the "holidays.walFile" property.
+     *
+     * @return the path of the log file, by default "holidays.log" next to the data file
+     */
+    public static Path mutationLogFile() {
+        String configured = System.getProperty("holidays.walFile");
+        return configured != null ? Path.of(configured) : dataFile().resolveSibling("holidays.log");
+    }
+
+    /**
+     * Returns whether a write request waits until its log record is forced to disk,
+     * set with the "holidays.walSync" property. When false, the log is forced every 100 ms instead.
+     *
+     * @return true unless "holidays.walSync" is set to false
+     */
+    public static boolean mutationLogSync() {
+        return Boolean.parseBoolean(System.getProperty("holidays.walSync", "true"));
+    }
+
+    /**
+     * Returns how often the mutation log is compacted into a new snapshot,
+     * set with the "holidays.compactIntervalMs" property.
+     *
+     * @return the compaction interval in milliseconds, by default 60000
+     */
+    public static long compactIntervalMillis() {
+        return Long.getLong("holidays.compactIntervalMs", 60_000);
+    }
+
+    /**
+     * Returns the number of log records that triggers a compaction before the interval ends,
+     * set with the "holidays.compactThreshold" property.
+     *
+     * @return the record count threshold, by default 100000
+     */
+    public static long compactThreshold() {
+        return Long.getLong("holidays.compactThreshold", 100_000);
+    }
+
+    /**
+     * Returns how HTTP requests are executed, set with the "holidays.executor" property:
+     * "fixed" (default) for a pool sized by "holidays.threads", "virtual" for one virtual thread per request,
+     * or "single" for the built-in single dispatcher thread.
+     *
+     * @return the executor mode in lower case
+     */
+    public static String executorMode() {
+        return System.getProperty("holidays.executor", "fixed").toLowerCase();
+    }
+
+    /**
+     * Returns the number of threads in the fixed request pool, set with the "holidays.threads" property.
+     *
+     * @return the thread count, by default the number of available processors
+     */
+    public static int threads() {
+        return Integer.getInteger("holidays.threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates the executor for the HTTP server according to {@link #executorMode()}.
+     *
+     * @return the executor, or null to use the server's default dispatcher thread
+     */
+    public static ExecutorService createExecutor() {
+        return switch (executorMode()) {
+            case "virtual" -> Executors.newVirtualThreadPerTaskExecutor();
+            case "single" -> null;
+            default -> Executors.newFixedThreadPool(Math.max(1, threads()));
+        };
+    }
+}
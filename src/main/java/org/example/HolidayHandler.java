@@ -1,63 +1,198 @@
 package org.example;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
-import java.io.FileWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.net.URI;
-import java.net.URLDecoder;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 public class HolidayHandler implements HttpHandler {
-    private final List<Holiday> holidays;
+    /** The paths served by this handler, each with its own request metrics. */
+    public static final String[] PATHS = {"/createHoliday", "/updateHoliday", "/deleteHoliday", "/rateHoliday",
+            "/resetRatings", "/batch", "/getHolidays", "/getHoliday", "/searchHolidays", "/findHolidays",
+            "/topHolidays", "/changes", "/metrics"};
+    private static final int STREAM_PAGE_SIZE = 256;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_TOP_SIZE = 10;
+    private static final long DEFAULT_POLL_SECONDS = 25;
+    private static final long MAX_POLL_SECONDS = 60;
+    private static final long KEEPALIVE_MILLIS = 15_000;
+    /** Set on an exchange whose response is finished by another thread, so {@link #handle} leaves it open. */
+    private static final String RESPONSE_CONTINUES = "holidays.responseContinues";
+
+    private final HolidayRepository repository;
+    private final HolidayStore store;
+    private final ResponseCache responseCache;
+    private final SearchIndex searchIndex;
+    private final FullTextIndex fullTextIndex;
+    private final Leaderboard leaderboard;
+    private final BatchProcessor batchProcessor;
+    private final VoteQueue voteQueue;
+    private final ChangeFeed changeFeed;
+    private final Semaphore changeClients;
+    private final boolean streamResponses;
+    private final String cacheControl;
     private final Gson gson;
+    private final Metrics metrics;
+    private final Map<String, Endpoint> routes = new HashMap<>();
 
-    public HolidayHandler(List<Holiday> holidays) {
-        this.holidays = holidays;
+    public HolidayHandler(HolidayRepository repository, HolidayStore store) {
+        this(repository, store, attachedMetrics(repository));
+    }
+
+    public HolidayHandler(HolidayRepository repository, HolidayStore store, Metrics metrics) {
+        this.repository = repository;
+        this.store = store;
+        this.metrics = metrics;
+        this.responseCache = new ResponseCache(HolidayConfig.responseCacheMaxBytes());
+        this.searchIndex = new SearchIndex();
+        searchIndex.attach(repository);
+        this.fullTextIndex = new FullTextIndex();
+        fullTextIndex.attach(repository);
+        this.leaderboard = new Leaderboard(searchIndex);
+        leaderboard.attach(repository);
+        this.batchProcessor = new BatchProcessor(repository, store, responseCache);
+        this.changeFeed = new ChangeFeed(HolidayConfig.changeFeedCapacity());
+        changeFeed.attach(repository);
+        this.changeClients = new Semaphore(HolidayConfig.changeFeedMaxClients());
+        this.streamResponses = HolidayConfig.streamResponses();
+        long maxAge = HolidayConfig.cacheMaxAgeSeconds();
+        this.cacheControl = maxAge > 0 ? "max-age=" + maxAge : "no-cache";
         this.gson = new Gson();
+        if (HolidayConfig.asyncVotes()) {
+            this.voteQueue = new VoteQueue(repository, store, responseCache, HolidayConfig.voteQueueCapacity(),
+                    "block".equals(HolidayConfig.voteBackpressure()), HolidayConfig.voteBlockTimeoutMillis(),
+                    HolidayConfig.voteBatchSize());
+            metrics.setVoteQueue(voteQueue);
+        } else {
+            this.voteQueue = null;
+        }
+
+        // The route table is built once, so dispatching a request is a single map lookup
+        addRoute("POST", "/createHoliday", this::handleCreateHoliday);
+        addRoute("POST", "/updateHoliday", this::handleUpdateHoliday);
+        addRoute("POST", "/deleteHoliday", this::handleDeleteHoliday);
+        addRoute("POST", "/rateHoliday", this::handleRateHoliday);
+        addRoute("POST", "/resetRatings", this::handleResetHolidayRatings);
+        addRoute("POST", "/batch", this::handleBatch);
+        addRoute("GET", "/getHolidays", this::handleGetHolidays);
+        addRoute("GET", "/getHoliday", this::handleGetHoliday);
+        addRoute("GET", "/searchHolidays", this::handleSearchHolidays);
+        addRoute("GET", "/findHolidays", this::handleFindHolidays);
+        addRoute("GET", "/topHolidays", this::handleTopHolidays);
+        addRoute("GET", "/changes", this::handleChanges);
+        addRoute("GET", "/metrics", this::handleMetrics);
     }
 
     /**
      * Handles an HTTP request and dispatches it to the appropriate handler method.
      * This method is called when a client sends a request to the server.
+     * Unknown paths return a 404 error and a known path with the wrong method a 405 error.
      *
      * @param exchange the HTTP exchange object, which represents the request and response
      * @throws IOException if an I/O error occurs while processing the request
      */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        URI uri = exchange.getRequestURI();
-        String method = exchange.getRequestMethod();
-        handleCORS(exchange);
-
-        switch (method) {
-            case "POST" -> {
-                switch (uri.getPath()) {
-                    case "/createHoliday" -> handleCreateHoliday(exchange);
-                    case "/updateHoliday" -> handleUpdateHoliday(exchange);
-                    case "/deleteHoliday" -> handleDeleteHoliday(exchange);
-                    case "/rateHoliday" -> handleRateHoliday(exchange);
-                    case "/resetRatings" -> handleResetHolidayRatings(exchange);
-                    default -> exchange.sendResponseHeaders(404, -1);
-                }
+        long start = System.nanoTime();
+        String path = exchange.getRequestURI().getPath();
+        Endpoint endpoint = routes.get(path);
+        Metrics.Route route = endpoint != null ? endpoint.metrics() : metrics.route(path);
+        try {
+            handleCORS(exchange);
+            if (endpoint == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if (!endpoint.method().equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", endpoint.method());
+                exchange.sendResponseHeaders(405, -1);
+            } else {
+                endpoint.handler().handle(exchange);
             }
-            case "GET" -> {
-                switch (uri.getPath()) {
-                    case "/getHolidays" -> handleGetHolidays(exchange);
-                    case "/getHoliday" -> handleGetHoliday(exchange);
-                    default -> exchange.sendResponseHeaders(404, -1);
-                }
+        } catch (RuntimeException e) {
+            System.out.println("Error handling " + path + ": " + e);
+            if (exchange.getResponseCode() < 0) {
+                exchange.sendResponseHeaders(500, -1);
             }
-            default -> exchange.sendResponseHeaders(404, -1);
+        } finally {
+            // Ends the exchange even when a handler returned without closing the body
+            if (exchange.getResponseCode() >= 0 && exchange.getAttribute(RESPONSE_CONTINUES) == null) {
+                exchange.getResponseBody().close();
+            }
+            route.record(exchange.getResponseCode(), System.nanoTime() - start);
         }
     }
 
+    private static Metrics attachedMetrics(HolidayRepository repository) {
+        Metrics metrics = new Metrics(PATHS);
+        metrics.attach(repository);
+        return metrics;
+    }
+
+    /**
+     * Ends open "/changes" requests and applies the votes still queued, if votes are queued.
+     * Call this after the server has stopped and before the store is closed.
+     */
+    public void close() {
+        changeFeed.close();
+        if (voteQueue != null) {
+            voteQueue.close();
+        }
+    }
+
+    /**
+     * Sends a 200 response with a body of known length and counts its bytes for the metrics of the path.
+     *
+     * @param exchange the HTTP exchange object
+     * @param body the response body
+     * @throws IOException if an I/O error occurs while sending the response
+     */
+    private void sendBody(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(body);
+        os.close();
+        metrics.route(exchange.getRequestURI().getPath()).addResponseBytes(body.length);
+    }
+
+    /**
+     * Returns the response body of a streamed response, counting the bytes written for the metrics of the path.
+     *
+     * @param exchange the HTTP exchange object
+     * @return the counting response body
+     */
+    private OutputStream streamedBody(HttpExchange exchange) {
+        return new CountingOutputStream(exchange.getResponseBody(), metrics.route(exchange.getRequestURI().getPath()));
+    }
+
+    private void addRoute(String method, String path, RequestHandler handler) {
+        routes.put(path, new Endpoint(method, handler, metrics.route(path)));
+    }
+
     private void handleCORS(HttpExchange exchange) {
         exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
         exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE");
@@ -70,6 +205,8 @@ public class HolidayHandler implements HttpHandler {
      * This method reads the "id" and "rating" parameters from the HTTP request, finds the holiday with the given ID,
      * and updates its ratings. If the rating is out of the 1-5 range or if the ID is invalid, it returns a 400 error.
      * If the holiday is not found, it returns a 404 error.
+     * With "holidays.asyncVotes" the vote is queued and 202 is returned at once; the new average is visible
+     * shortly after. If the queue is full, 503 is returned with a Retry-After header.
      *
      * @param exchange the HttpExchange object containing the request and response
      * @throws IOException if an I/O error occurs
@@ -77,41 +214,36 @@ public class HolidayHandler implements HttpHandler {
      *     curl -X POST '<a href="http://localhost:8000/rateHoliday?id=1&rating=4">Rate Holiday ID:1 to 4 stars</a>'
      */
     private void handleRateHoliday(HttpExchange exchange) throws IOException {
-        Map<String, String> params = queryToMap(exchange.getRequestURI().getQuery());
-        long id;
-        int rating;
+        String query = exchange.getRequestURI().getRawQuery();
+        long id = QueryParser.getLong(query, "id", QueryParser.INVALID_LONG);
+        int rating = QueryParser.getInt(query, "rating", QueryParser.INVALID_INT);
 
-        // Try to parse "id" and "rating" parameters from the query
-        try {
-            id = Long.parseLong(params.get("id"));
-            rating = Integer.parseInt(params.get("rating"));
-        } catch (NumberFormatException e) {
+        // Check if the ID is valid and the rating is within the valid range
+        if (id == QueryParser.INVALID_LONG || rating < 1 || rating > 5) {
             exchange.sendResponseHeaders(400, -1);
             exchange.getResponseBody().close();
             return;
         }
 
-        // Check if the rating is within the valid range
-        if (rating < 1 || rating > 5) {
-            exchange.sendResponseHeaders(400, -1);
+        if (voteQueue != null) {
+            if (repository.findById(id) == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if (voteQueue.submit(id, rating)) {
+                exchange.sendResponseHeaders(202, -1);
+            } else {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(503, -1);
+            }
             exchange.getResponseBody().close();
             return;
         }
 
         // Find the holiday by ID and update its ratings
-        boolean holidayFound = holidays.stream()
-                .filter(h -> h.getId() == id)
-                .findFirst()
-                .map(h -> {
-                    int[] newRating = new int[h.getRating().length + 1];
-                    System.arraycopy(h.getRating(), 0, newRating, 0, h.getRating().length);
-                    newRating[newRating.length - 1] = rating;
-                    h.setRating(newRating);
-                    h.setAverageRating(RatingCalculator.calculateAverageRating(h.getRating()));
-                    saveHolidays();
-                    return true;
-                })
-                .orElse(false);
+        boolean holidayFound = repository.rate(id, rating);
+        if (holidayFound) {
+            responseCache.invalidate(id);
+            store.markDirty();
+        }
 
         // Send appropriate response based on whether the holiday was found
         if (holidayFound) {
@@ -134,35 +266,20 @@ public class HolidayHandler implements HttpHandler {
      *     curl -X POST '<a href="http://localhost:8000/resetRatings?id=1">Reset Holiday ID:1 ratings</a>'
      */
     private void handleResetHolidayRatings(HttpExchange exchange) throws IOException {
-        String query = exchange.getRequestURI().getQuery();
-        Map<String, String> params = queryToMap(query);
-        long id;
-
-        try {
-            id = Long.parseLong(params.get("id"));
-        } catch (NumberFormatException e) {
+        long id = QueryParser.getLong(exchange.getRequestURI().getRawQuery(), "id", QueryParser.INVALID_LONG);
+        if (id == QueryParser.INVALID_LONG) {
             exchange.sendResponseHeaders(400, -1); // Netinkamas ID formatas
             return;
         }
 
-        // Rasti atostogas pagal nurodytą ID
-        Holiday holiday = holidays.stream()
-                .filter(h -> h.getId() == id)
-                .findFirst()
-                .orElse(null);
-
-        if (holiday != null) {
-            // Nunulinti reitingus ir vidutinį reitingą
-            holiday.setRating(new int[0]);
-            holiday.setAverageRating(0.0);
-            saveHolidays();
+        // Rasti atostogas pagal nurodytą ID ir nunulinti reitingus ir vidutinį reitingą
+        if (repository.resetRatings(id)) {
+            responseCache.invalidate(id);
+            store.markDirty();
 
             // Siųsti sėkmingą atsakymą su pranešimu
             String response = "Holiday rating has been reset";
-            exchange.sendResponseHeaders(200, response.getBytes().length);
-            OutputStream os = exchange.getResponseBody();
-            os.write(response.getBytes());
-            os.close();
+            sendBody(exchange, response.getBytes());
         } else {
             // Siųsti klaidos atsakymą, jei atostogos su nurodytu ID nerastos
             exchange.sendResponseHeaders(404, -1);
@@ -179,20 +296,17 @@ public class HolidayHandler implements HttpHandler {
      *     curl -X GET '<a href="http://localhost:8000/getHoliday?id=1">Get Holiday ID:1 link</a>'
      */
     private void handleGetHoliday(HttpExchange exchange) throws IOException {
-        String query = exchange.getRequestURI().getQuery();
-        Map<String, String> params = queryToMap(query);
-        long id = Long.parseLong(params.get("id"));
-        Holiday holiday = holidays.stream().filter(h -> h.getId() == id).findFirst().orElse(null);
-        if (holiday != null) {
-            int[] ratings = holiday.getRating();
-            double averageRating = RatingCalculator.calculateAverageRating(ratings);
-            holiday.setAverageRating(averageRating);
-            String response = gson.toJson(holiday);
-            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
-            exchange.sendResponseHeaders(200, response.getBytes(StandardCharsets.UTF_8).length);
-            OutputStream os = exchange.getResponseBody();
-            os.write(response.getBytes(StandardCharsets.UTF_8));
-            os.close();
+        long id = QueryParser.getLong(exchange.getRequestURI().getRawQuery(), "id", QueryParser.INVALID_LONG);
+        if (id == QueryParser.INVALID_LONG) {
+            exchange.sendResponseHeaders(400, -1);
+            return;
+        }
+        ResponseCache.Entry response = responseCache.getHoliday(id, () -> {
+            String json = repository.read(id, gson::toJson);
+            return json == null ? null : json.getBytes(StandardCharsets.UTF_8);
+        });
+        if (response != null) {
+            sendCached(exchange, response);
         } else {
             exchange.sendResponseHeaders(404, -1);
         }
@@ -201,6 +315,7 @@ public class HolidayHandler implements HttpHandler {
     /**
      * Handles a request to retrieve all holidays.
      * This method is called when a client sends a request to retrieve all holidays.
+     * With any of the "limit", "offset", "cursor" or "fields" parameters the request is served as a page instead.
      *
      * @param exchange the HTTP exchange object, which represents the request and response
      * @throws IOException if an I/O error occurs while processing the request
@@ -208,12 +323,348 @@ public class HolidayHandler implements HttpHandler {
      *     curl -X GET '<a href="http://localhost:8000/getHolidays">Get Holidays link</a>'
      */
     private void handleGetHolidays(HttpExchange exchange) throws IOException {
-        String response = gson.toJson(holidays);
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null && (QueryParser.has(query, "limit") || QueryParser.has(query, "offset")
+                || QueryParser.has(query, "cursor") || QueryParser.has(query, "fields"))) {
+            handleGetHolidaysPage(exchange, query);
+            return;
+        }
+        // An unchanged catalog is answered without looking at the cached body at all
+        String etag = responseCache.currentListETag();
+        long lastModified = responseCache.currentLastModified();
+        setCachingHeaders(exchange, etag, lastModified);
+        if (isNotModified(exchange, etag, lastModified)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.getResponseBody().close();
+            return;
+        }
+        if (streamResponses) {
+            streamHolidays(exchange);
+            return;
+        }
+        ResponseCache.Entry response = responseCache.getList(
+                () -> gson.toJson(repository.getAll()).getBytes(StandardCharsets.UTF_8));
+        sendCached(exchange, response);
+    }
+
+    /**
+     * Handles a request to retrieve one page of holidays in ID order.
+     * The page starts after the opaque "cursor" returned by the previous page, or at "offset" when no cursor is given.
+     * Only the fields named in "fields" are serialized. When more holidays may follow, the cursor of the next page
+     * is returned in the "X-Next-Cursor" header. Invalid parameters return a 400 error.
+     *
+     * @param exchange the HTTP exchange object, which represents the request and response
+     * @param query the raw query string
+     * @throws IOException if an I/O error occurs while processing the request
+     * @example
+     *     curl -X GET '<a href="http://localhost:8000/getHolidays?limit=20&fields=id,title,price,average_rating">Get first 20 holidays</a>'
+     */
+    private void handleGetHolidaysPage(HttpExchange exchange, String query) throws IOException {
+        int fields = HolidayJsonWriter.parseFields(QueryParser.get(query, "fields"));
+        int limit = QueryParser.getInt(query, "limit", DEFAULT_PAGE_SIZE);
+        int offset = QueryParser.getInt(query, "offset", 0);
+        String cursor = QueryParser.get(query, "cursor");
+        long afterId = cursor != null ? decodeCursor(cursor) : -1;
+        if (fields < 0 || limit < 0 || limit > MAX_PAGE_SIZE || offset < 0 || afterId == QueryParser.INVALID_LONG) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.getResponseBody().close();
+            return;
+        }
+
+        List<Holiday> page = afterId >= 0 ? repository.getPage(afterId, limit) : repository.getRange(offset, limit);
+        if (limit > 0 && page.size() == limit) {
+            exchange.getResponseHeaders().set("X-Next-Cursor", encodeCursor(page.get(page.size() - 1).getId()));
+        }
+        sendHolidays(exchange, page, fields);
+    }
+
+    /**
+     * Handles a search for holidays by country, city, season, price range and average rating range.
+     * Country, city and season match exactly, ignoring case; all given filters must match, and empty ones are ignored.
+     * The optional "fields" and "limit" parameters work as for "/getHolidays". Invalid parameters return a 400 error.
+     *
+     * @param exchange the HTTP exchange object, which represents the request and response
+     * @throws IOException if an I/O error occurs while processing the request
+     * @example
+     *     curl -X GET '<a href="http://localhost:8000/searchHolidays?country=Greece&maxPrice=1500">Search holidays in Greece up to 1500</a>'
+     */
+    private void handleSearchHolidays(HttpExchange exchange) throws IOException {
+        String params = exchange.getRequestURI().getRawQuery();
+        int fields = HolidayJsonWriter.parseFields(QueryParser.get(params, "fields"));
+        int limit = QueryParser.getInt(params, "limit", DEFAULT_PAGE_SIZE);
+        Double minPrice = parseOptionalDouble(params, "minPrice");
+        Double maxPrice = parseOptionalDouble(params, "maxPrice");
+        Double minRating = parseOptionalDouble(params, "minRating");
+        Double maxRating = parseOptionalDouble(params, "maxRating");
+        if (fields < 0 || limit < 0 || limit > MAX_PAGE_SIZE || isNaN(minPrice) || isNaN(maxPrice)
+                || isNaN(minRating) || isNaN(maxRating)) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.getResponseBody().close();
+            return;
+        }
+
+        SearchIndex.Query query = new SearchIndex.Query(QueryParser.get(params, "country"), QueryParser.get(params, "city"),
+                QueryParser.get(params, "season"), minPrice, maxPrice, minRating, maxRating);
+        List<Holiday> result = new ArrayList<>();
+        for (long id : searchIndex.search(query, limit)) {
+            Holiday holiday = repository.findById(id);
+            if (holiday != null) {
+                result.add(holiday);
+            }
+        }
+        sendHolidays(exchange, result, fields);
+    }
+
+    /**
+     * Handles a keyword search over holiday titles, descriptions, cities and countries.
+     * Holidays containing any of the words in "q" are returned, best matches first.
+     * The optional "fields" and "limit" parameters work as for "/getHolidays". A missing query returns a 400 error.
+     *
+     * @param exchange the HTTP exchange object, which represents the request and response
+     * @throws IOException if an I/O error occurs while processing the request
+     * @example
+     *     curl -X GET '<a href="http://localhost:8000/findHolidays?q=ski+Zermatt">Find ski holidays in Zermatt</a>'
+     */
+    private void handleFindHolidays(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String text = QueryParser.get(query, "q");
+        int fields = HolidayJsonWriter.parseFields(QueryParser.get(query, "fields"));
+        int limit = QueryParser.getInt(query, "limit", DEFAULT_PAGE_SIZE);
+        if (text == null || text.isBlank() || fields < 0 || limit < 0 || limit > MAX_PAGE_SIZE) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.getResponseBody().close();
+            return;
+        }
+
+        List<Holiday> result = new ArrayList<>();
+        for (long id : fullTextIndex.search(text, limit)) {
+            Holiday holiday = repository.findById(id);
+            if (holiday != null) {
+                result.add(holiday);
+            }
+        }
+        sendHolidays(exchange, result, fields);
+    }
+
+    /**
+     * Handles a request for a top-N list: the best rated holidays ("by=average_rating", the default)
+     * or the cheapest ones ("by=price"), optionally within one season.
+     * The optional "fields" parameter works as for "/getHolidays". Invalid parameters return a 400 error.
+     *
+     * @param exchange the HTTP exchange object, which represents the request and response
+     * @throws IOException if an I/O error occurs while processing the request
+     * @example
+     *     curl -X GET '<a href="http://localhost:8000/topHolidays?by=price&season=Summer&n=5">Five cheapest summer holidays</a>'
+     */
+    private void handleTopHolidays(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String by = QueryParser.get(query, "by");
+        Leaderboard.Order order = Leaderboard.Order.parse(by != null ? by : "average_rating");
+        String season = QueryParser.get(query, "season");
+        int fields = HolidayJsonWriter.parseFields(QueryParser.get(query, "fields"));
+        int n = QueryParser.getInt(query, "n", DEFAULT_TOP_SIZE);
+        if (order == null || fields < 0 || n < 0 || n > MAX_PAGE_SIZE) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.getResponseBody().close();
+            return;
+        }
+
+        List<Holiday> result = new ArrayList<>();
+        for (long id : leaderboard.top(order, season, n)) {
+            Holiday holiday = repository.findById(id);
+            if (holiday != null) {
+                result.add(holiday);
+            }
+        }
+        sendHolidays(exchange, result, fields);
+    }
+
+    /**
+     * Reads an optional decimal filter.
+     *
+     * @return null if the parameter is missing or empty, NaN if it is not a number
+     */
+    private static Double parseOptionalDouble(String query, String name) {
+        String value = QueryParser.get(query, name);
+        return value == null || value.isEmpty() ? null : QueryParser.getDouble(query, name, Double.NaN);
+    }
+
+    private static boolean isNaN(Double value) {
+        return value != null && value.isNaN();
+    }
+
+    /**
+     * Sends a JSON array of holidays, serializing only the selected fields.
+     *
+     * @param exchange the HTTP exchange object
+     * @param holidays the holidays to send
+     * @param fields the field mask, see {@link HolidayJsonWriter#parseFields(String)}
+     * @throws IOException if an I/O error occurs while sending the response
+     */
+    private void sendHolidays(HttpExchange exchange, List<Holiday> holidays, int fields) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (JsonWriter writer = HolidayJsonWriter.open(new OutputStreamWriter(buffer, StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            for (Holiday holiday : holidays) {
+                HolidayJsonWriter.write(writer, holiday, fields);
+            }
+            writer.endArray();
+        }
+        byte[] response = buffer.toByteArray();
         exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
-        exchange.sendResponseHeaders(200, response.getBytes(StandardCharsets.UTF_8).length);
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes(StandardCharsets.UTF_8));
-        os.close();
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        String encoding = ContentEncoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (encoding != null && response.length >= ContentEncoding.MIN_COMPRESSED_SIZE) {
+            response = ContentEncoding.compress(response, encoding);
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        sendBody(exchange, response);
+    }
+
+    private static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("id:" + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor created by {@link #encodeCursor(long)}.
+     *
+     * @return the last ID of the previous page, or {@link QueryParser#INVALID_LONG} if the cursor is malformed
+     */
+    private static long decodeCursor(String cursor) {
+        // Checked up front, so junk cursors are rejected without the decoder throwing
+        for (int i = 0; i < cursor.length(); i++) {
+            char c = cursor.charAt(i);
+            if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return QueryParser.INVALID_LONG;
+            }
+        }
+        if (cursor.length() % 4 == 1) {
+            return QueryParser.INVALID_LONG;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.ISO_8859_1);
+        if (!decoded.startsWith("id:")) {
+            return QueryParser.INVALID_LONG;
+        }
+        long lastId = QueryParser.parseLong(decoded, 3, decoded.length());
+        return lastId < 0 ? QueryParser.INVALID_LONG : lastId;
+    }
+
+    /**
+     * Streams all holidays straight to the response body using chunked transfer encoding.
+     * The catalog is read page by page, so the memory used by a request does not grow with the catalog size.
+     * The caching headers of the catalog version the stream starts from must already be set.
+     *
+     * @param exchange the HTTP exchange object
+     * @throws IOException if an I/O error occurs while sending the response
+     */
+    private void streamHolidays(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        OutputStream body = streamedBody(exchange);
+        String encoding = ContentEncoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (encoding != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = encoding != null ? ContentEncoding.wrap(body, encoding) : new BufferedOutputStream(body, 8192);
+        try (JsonWriter writer = HolidayJsonWriter.open(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            long afterId = 0;
+            List<Holiday> page;
+            do {
+                page = repository.getPage(afterId, STREAM_PAGE_SIZE);
+                for (Holiday holiday : page) {
+                    HolidayJsonWriter.write(writer, holiday);
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == STREAM_PAGE_SIZE);
+            writer.endArray();
+        }
+    }
+
+    /**
+     * Sends a cached JSON response, or 304 if the client already holds the same version.
+     * The body is sent gzip- or deflate-compressed when the client accepts it, using the entry's compressed copy.
+     *
+     * @param exchange the HTTP exchange object
+     * @param response the cached response
+     * @throws IOException if an I/O error occurs while sending the response
+     */
+    private void sendCached(HttpExchange exchange, ResponseCache.Entry response) throws IOException {
+        setCachingHeaders(exchange, response.getETag(), response.getLastModified());
+        if (isNotModified(exchange, response.getETag(), response.getLastModified())) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.getResponseBody().close();
+            return;
+        }
+        byte[] body = response.getBody();
+        String encoding = ContentEncoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (encoding != null && body.length >= ContentEncoding.MIN_COMPRESSED_SIZE) {
+            body = response.getBody(encoding);
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        sendBody(exchange, body);
+    }
+
+    /**
+     * Sets the headers that let clients and proxies cache a response and revalidate it later.
+     * They are sent with 304 responses as well. Last-Modified is left out while the data may still change
+     * within the same second, see {@link #isSettled(long)}.
+     */
+    private void setCachingHeaders(HttpExchange exchange, String etag, long lastModified) {
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (isSettled(lastModified)) {
+            exchange.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME
+                    .format(Instant.ofEpochMilli(lastModified).atOffset(ZoneOffset.UTC)));
+        }
+        exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+    }
+
+    /**
+     * Checks the conditional request headers. "If-None-Match" is compared with the ETag and, as HTTP requires,
+     * decides on its own when present; otherwise "If-Modified-Since" is compared with the modification time,
+     * which HTTP dates only carry to the second. A date is never trusted while the data changed in the current
+     * second, because a later change in that second would have the same date.
+     *
+     * @return true if the client already holds this version and 304 can be sent
+     */
+    private static boolean isNotModified(HttpExchange exchange, String etag, long lastModified) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmed = tag.trim();
+                if (trimmed.equals("*") || trimmed.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            long since = ZonedDateTime.parse(ifModifiedSince.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return isSettled(lastModified) && lastModified / 1000 <= since;
+        } catch (DateTimeParseException e) {
+            // An unreadable date is ignored, as HTTP requires
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether a modification time lies in an earlier second than now. Only then can it be used as
+     * a validator (RFC 7232, section 2.2.2): a change made later in the same second would get the same
+     * HTTP date, and a client holding the older data would be told it is up to date.
+     *
+     * @param lastModified the modification time in milliseconds since the epoch
+     * @return true if the time can be sent as Last-Modified and compared with If-Modified-Since
+     */
+    private static boolean isSettled(long lastModified) {
+        return lastModified / 1000 < System.currentTimeMillis() / 1000;
     }
 
     /**
@@ -226,18 +677,17 @@ public class HolidayHandler implements HttpHandler {
      *     curl -X POST '<a href="http://localhost:8000/deleteHoliday?id=1">Delete Holiday ID:1</a>'
      */
     private void handleDeleteHoliday(HttpExchange exchange) throws IOException {
-        String query = exchange.getRequestURI().getQuery();
-        Map<String, String> params = queryToMap(query);
-        long id = Long.parseLong(params.get("id"));
-        Holiday holiday = holidays.stream().filter(h -> h.getId() == id).findFirst().orElse(null);
+        long id = QueryParser.getLong(exchange.getRequestURI().getRawQuery(), "id", QueryParser.INVALID_LONG);
+        if (id == QueryParser.INVALID_LONG) {
+            exchange.sendResponseHeaders(400, -1);
+            return;
+        }
+        Holiday holiday = repository.remove(id);
         if (holiday != null) {
-            holidays.remove(holiday);
-            saveHolidays();
+            responseCache.invalidate(id);
+            store.markDirty();
             String response = "Holiday has been deleted successfully";
-            exchange.sendResponseHeaders(200, response.getBytes().length);
-            OutputStream os = exchange.getResponseBody();
-            os.write(response.getBytes());
-            os.close();
+            sendBody(exchange, response.getBytes());
         } else {
             exchange.sendResponseHeaders(404, -1);
         }
@@ -246,58 +696,241 @@ public class HolidayHandler implements HttpHandler {
     /**
      * Handles a request to update a specific holiday.
      * This method is called when a client sends a request to update a holiday with a specific ID.
+     * The update can be made conditional on the holiday's "version", sent in the "If-Match" header or
+     * the "version" parameter: if the holiday was edited since, it is left unchanged and 409 is returned.
+     * A successful update increases the version by one.
      *
      * @param exchange the HTTP exchange object, which represents the request and response
      * @throws IOException if an I/O error occurs while processing the request
      * @example
      *     curl -X POST '<a href="http://localhost:8000/updateHoliday?id=1&title=New+Title&country=New+Country&">Update Holiday ID:1</a>...'
+     *     curl -X POST -H 'If-Match: "3"' '<a href="http://localhost:8000/updateHoliday?id=1&title=New+Title&price=999">Update Holiday ID:1 if it is at version 3</a>'
      */
     private void handleUpdateHoliday(HttpExchange exchange) throws IOException {
-        String query = exchange.getRequestURI().getQuery();
-        Map<String, String> params = queryToMap(query);
-
-        long id = Long.parseLong(params.get("id"));
-        Holiday updatedHoliday = holidays.stream()
-                .filter(h -> h.getId() == id)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Holiday not found"));
-
-        updatedHoliday.setTitle(params.get("title"));
-        updatedHoliday.setCountry(params.get("country"));
-        updatedHoliday.setCity(params.get("city"));
-        updatedHoliday.setDuration(params.get("duration"));
-        updatedHoliday.setSeason(params.get("season"));
-        updatedHoliday.setDescription(params.get("description"));
-        updatedHoliday.setPrice(Double.parseDouble(params.get("price")));
-        updatedHoliday.setPhotos(params.get("photos").split(","));
-
-        saveHolidays();
+        String query = exchange.getRequestURI().getRawQuery();
+        long id = QueryParser.getLong(query, "id", QueryParser.INVALID_LONG);
+        long expectedVersion = expectedVersion(exchange, query);
+        Holiday changes = holidayFromQuery(query);
+        if (id == QueryParser.INVALID_LONG || expectedVersion == QueryParser.INVALID_LONG || changes == null) {
+            exchange.sendResponseHeaders(400, -1);
+            return;
+        }
+        HolidayRepository.UpdateResult result = repository.update(id, changes, expectedVersion);
+        if (result == HolidayRepository.UpdateResult.NOT_FOUND) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        if (result == HolidayRepository.UpdateResult.CONFLICT) {
+            exchange.sendResponseHeaders(409, -1);
+            return;
+        }
+
+        responseCache.invalidate(id);
+        store.markDirty();
         String response = "Holiday has been updated successfully";
-        exchange.sendResponseHeaders(200, response.getBytes().length);
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
-        os.close();
+        sendBody(exchange, response.getBytes());
+    }
+
+    /**
+     * Reads the version an update is based on, from the "If-Match" header or else from the "version" parameter.
+     * The header may hold the version as a quoted entity tag, e.g. "3", or "*" for any version.
+     *
+     * @return the version, {@link HolidayRepository#ANY_VERSION} if none is given,
+     *         or {@link QueryParser#INVALID_LONG} if the value is not a version
+     */
+    private static long expectedVersion(HttpExchange exchange, String query) {
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch == null) {
+            long version = QueryParser.getLong(query, "version", HolidayRepository.ANY_VERSION);
+            return version < 0 && version != HolidayRepository.ANY_VERSION ? QueryParser.INVALID_LONG : version;
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return HolidayRepository.ANY_VERSION;
+        }
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        int start = tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"") ? 1 : 0;
+        long version = QueryParser.parseLong(tag, start, tag.length() - start);
+        return version < 0 ? QueryParser.INVALID_LONG : version;
+    }
+
+    /**
+     * Handles a request for the changes made to the catalog, so clients can keep a copy up to date without
+     * downloading the whole catalog again. Each change is a JSON event with a "cursor", a "type"
+     * (created, updated, deleted, rated or ratingsReset), the holiday "id" and the changed "holiday" fields.
+     * Clients asking for "text/event-stream" get Server-Sent Events, one per change, and resume with the
+     * Last-Event-ID header after a reconnect. Other clients long-poll: the response holds the events after the
+     * "cursor" parameter, waiting up to "timeout" seconds (default 25, at most 60) for the first one, and the
+     * cursor to send next. Without a cursor the current cursor is returned at once.
+     * A client that fell too far behind gets a reset instead and should reload "/getHolidays" first.
+     * Requests wait on their own virtual thread, so they do not hold up the request executor;
+     * when too many are open, 503 is returned.
+     *
+     * @param exchange the HTTP exchange object, which represents the request and response
+     * @throws IOException if an I/O error occurs while processing the request
+     * @example
+     *     curl '<a href="http://localhost:8000/changes?cursor=k3x9-12&timeout=30">Changes after k3x9-12</a>'
+     *     curl -N -H 'Accept: text/event-stream' '<a href="http://localhost:8000/changes">Change stream</a>'
+     */
+    private void handleChanges(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        boolean eventStream = accept != null && accept.contains("text/event-stream");
+        String cursor = QueryParser.get(query, "cursor");
+        if (cursor == null) {
+            cursor = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        }
+        int limit = QueryParser.getInt(query, "limit", MAX_PAGE_SIZE);
+        long timeout = QueryParser.getLong(query, "timeout", DEFAULT_POLL_SECONDS);
+        if (limit < 1 || limit > MAX_PAGE_SIZE || timeout < 0 || timeout > MAX_POLL_SECONDS) {
+            exchange.sendResponseHeaders(400, -1);
+            return;
+        }
+        if (!changeClients.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type",
+                eventStream ? "text/event-stream; charset=UTF-8" : "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        exchange.setAttribute(RESPONSE_CONTINUES, Boolean.TRUE);
+        String startCursor = cursor;
+        try {
+            Thread.ofVirtual().name("changes").start(() -> {
+                try {
+                    if (eventStream) {
+                        streamChanges(exchange, startCursor);
+                    } else {
+                        pollChanges(exchange, startCursor, limit, TimeUnit.SECONDS.toMillis(timeout));
+                    }
+                } catch (IOException e) {
+                    // The client went away
+                } finally {
+                    exchange.close();
+                    changeClients.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            exchange.setAttribute(RESPONSE_CONTINUES, null);
+            changeClients.release();
+            throw e;
+        }
     }
 
-    private Map<String, String> queryToMap(String query) {
-        Map<String, String> result = new HashMap<>();
-        for (String param : query.split("&")) {
-            String[] entry = param.split("=");
-            if (entry.length > 1) {
-                result.put(URLDecoder.decode(entry[0], StandardCharsets.UTF_8), URLDecoder.decode(entry[1], StandardCharsets.UTF_8));
+    /**
+     * Answers one long-poll request of "/changes".
+     */
+    private void pollChanges(HttpExchange exchange, String cursor, int limit, long timeoutMillis) throws IOException {
+        List<ChangeFeed.Event> events = cursor == null ? List.of() : changeFeed.read(cursor, limit, timeoutMillis);
+        boolean reset = events == null;
+        String next;
+        if (cursor == null || reset) {
+            next = changeFeed.currentCursor();
+        } else {
+            next = events.isEmpty() ? cursor : events.get(events.size() - 1).getCursor();
+        }
+        try (Writer out = new OutputStreamWriter(new BufferedOutputStream(streamedBody(exchange), 8192), StandardCharsets.UTF_8)) {
+            out.write("{\"reset\":" + reset + ",\"cursor\":" + gson.toJson(next) + ",\"events\":[");
+            if (!reset) {
+                for (int i = 0; i < events.size(); i++) {
+                    out.write(i > 0 ? "," : "");
+                    out.write(events.get(i).getJson());
+                }
+            }
+            out.write("]}");
+        }
+    }
+
+    /**
+     * Sends "/changes" as Server-Sent Events until the client disconnects or the server stops.
+     * A comment line is sent when nothing happened for a while, so dead connections are noticed.
+     */
+    private void streamChanges(HttpExchange exchange, String cursor) throws IOException {
+        Writer out = new OutputStreamWriter(new BufferedOutputStream(streamedBody(exchange), 8192), StandardCharsets.UTF_8);
+        String position = cursor != null ? cursor : changeFeed.currentCursor();
+        out.write("retry: 3000\n\n");
+        out.flush();
+        while (!changeFeed.isClosed()) {
+            List<ChangeFeed.Event> events = changeFeed.read(position, MAX_PAGE_SIZE, KEEPALIVE_MILLIS);
+            if (events == null) {
+                position = changeFeed.currentCursor();
+                out.write("id: " + position + "\nevent: reset\ndata: {\"cursor\":\"" + position + "\"}\n\n");
+            } else if (events.isEmpty()) {
+                out.write(": keepalive\n\n");
             } else {
-                result.put(URLDecoder.decode(entry[0], StandardCharsets.UTF_8), "");
+                for (ChangeFeed.Event event : events) {
+                    out.write("id: " + event.getCursor() + "\nevent: change\ndata: " + event.getJson() + "\n\n");
+                }
+                position = events.get(events.size() - 1).getCursor();
             }
+            out.flush();
         }
-        return result;
     }
 
-    private void saveHolidays() {
-        try (FileWriter writer = new FileWriter("holidays.json")) {
-            gson.toJson(holidays, writer);
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Handles a batch of create, update, delete, rate and reset operations sent in the request body
+     * as a JSON array or as newline-delimited JSON. Returns one result per operation;
+     * a body that is not valid JSON returns a 400 error.
+     *
+     * @param exchange the HTTP exchange object, which represents the request and response
+     * @throws IOException if an I/O error occurs while processing the request
+     * @example
+     *     curl -X POST -d '[{"op":"rate","id":1,"rating":5},{"op":"delete","id":2}]' '<a href="http://localhost:8000/batch">Batch</a>'
+     */
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (Reader body = new InputStreamReader(new BufferedInputStream(exchange.getRequestBody()), StandardCharsets.UTF_8);
+             JsonWriter writer = new JsonWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8))) {
+            batchProcessor.process(body, writer);
+        } catch (JsonParseException e) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.getResponseBody().close();
+            return;
         }
+        byte[] response = buffer.toByteArray();
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        sendBody(exchange, response);
+    }
+
+    /**
+     * Sends the server metrics in the Prometheus text format.
+     *
+     * @param exchange the HTTP exchange object, which represents the request and response
+     * @throws IOException if an I/O error occurs while processing the request
+     * @example
+     *     curl '<a href="http://localhost:8000/metrics">Metrics</a>'
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8)) {
+            metrics.writePrometheus(writer);
+        }
+        byte[] response = buffer.toByteArray();
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        sendBody(exchange, response);
+    }
+
+    /**
+     * Reads the holiday fields of a create or update request.
+     * "price" is required; "photos" is a comma-separated list and may be left out.
+     *
+     * @param query the raw query string
+     * @return the holiday without ratings, or null if the price is missing or invalid
+     */
+    private static Holiday holidayFromQuery(String query) {
+        double price = QueryParser.getDouble(query, "price", Double.NaN);
+        if (Double.isNaN(price)) {
+            return null;
+        }
+        String photos = QueryParser.get(query, "photos");
+        return new Holiday(QueryParser.get(query, "title"), QueryParser.get(query, "country"), QueryParser.get(query, "city"),
+                QueryParser.get(query, "duration"), QueryParser.get(query, "season"), QueryParser.get(query, "description"),
+                price, photos == null || photos.isEmpty() ? new String[0] : photos.split(","), null);
     }
 
     /**
@@ -310,40 +943,51 @@ public class HolidayHandler implements HttpHandler {
      *     curl -X POST '<a href="http://localhost:8000/createHoliday?title=New+Title&country=New+Country&">Create New Holiday</a>...'
      */
     private void handleCreateHoliday(HttpExchange exchange) throws IOException {
-        String query = exchange.getRequestURI().getQuery();
-        Map<String, String> params = queryToMap(query);
-
-        String title = params.get("title");
-        String country = params.get("country");
-        String city = params.get("city");
-        String duration = params.get("duration");
-        String season = params.get("season");
-        String description = params.get("description");
-        double price = Double.parseDouble(params.get("price"));
-        String[] photos = params.get("photos").split(",");
-        int[] rating = new int[0];
-
-        Holiday holiday = new Holiday(title, country, city, duration, season, description, price, photos, rating);
-        long newId = generateNextId();
-        holiday.setId(newId);
-
-        holidays.add(holiday);
-        saveHolidays();
+        Holiday holiday = holidayFromQuery(exchange.getRequestURI().getRawQuery());
+        if (holiday == null) {
+            exchange.sendResponseHeaders(400, -1);
+            return;
+        }
+        holiday.setRating(new int[0]);
+        long newId = repository.add(holiday);
+        responseCache.invalidate(newId);
+        store.markDirty();
         String response = "Holiday has been created successfully with ID: " + newId;
-        exchange.sendResponseHeaders(200, response.getBytes().length);
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
-        os.close();
+        sendBody(exchange, response.getBytes());
     }
 
-    private long generateNextId() {
-        long maxId = 0;
-        for (Holiday holiday : holidays) {
-            if (holiday.getId() > maxId) {
-                maxId = holiday.getId();
-            }
+    /**
+     * Counts the bytes of a streamed response body, whose length is not known up front, for the per-path metrics.
+     * Responses of known length are counted by {@link #sendBody} instead, so only streams pay for the wrapper.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private final Metrics.Route route;
+
+        CountingOutputStream(OutputStream out, Metrics.Route route) {
+            super(out);
+            this.route = route;
         }
-        return maxId + 1;
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            route.addResponseBytes(1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            route.addResponseBytes(length);
+        }
+    }
+
+    /**
+     * One entry of the route table.
+     */
+    private record Endpoint(String method, RequestHandler handler, Metrics.Route metrics) {
     }
 
-}
\ No newline at end of file
+    private interface RequestHandler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
@@ -0,0 +1,156 @@
+package org.example;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes holidays field by field to a Gson {@link JsonWriter}, producing the same JSON as {@code gson.toJson(holiday)}.
+ * Used where responses are streamed instead of being built as one string, and for field projections:
+ * fields left out of the mask are never serialized at all.
+ */
+public class HolidayJsonWriter {
+    public static final int ID = 1;
+    public static final int TITLE = 1 << 1;
+    public static final int COUNTRY = 1 << 2;
+    public static final int CITY = 1 << 3;
+    public static final int DURATION = 1 << 4;
+    public static final int SEASON = 1 << 5;
+    public static final int DESCRIPTION = 1 << 6;
+    public static final int PRICE = 1 << 7;
+    public static final int PHOTOS = 1 << 8;
+    public static final int RATING = 1 << 9;
+    public static final int RATING_HISTOGRAM = 1 << 10;
+    public static final int AVERAGE_RATING = 1 << 11;
+    public static final int VERSION = 1 << 12;
+    public static final int ALL_FIELDS = (1 << 13) - 1;
+
+    private static final String[] FIELD_NAMES = {
+            "id", "title", "country", "city", "duration", "season", "description",
+            "price", "photos", "rating", "rating_histogram", "average_rating", "version"
+    };
+
+    /**
+     * Parses a comma separated list of JSON field names, e.g. "id,title,price,average_rating", into a field mask.
+     *
+     * @param fields the field list, or null for all fields
+     * @return the field mask, or -1 if the list names an unknown field
+     */
+    public static int parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL_FIELDS;
+        }
+        int mask = 0;
+        for (String field : fields.split(",")) {
+            int bit = -1;
+            for (int i = 0; i < FIELD_NAMES.length; i++) {
+                if (FIELD_NAMES[i].equals(field.trim())) {
+                    bit = 1 << i;
+                    break;
+                }
+            }
+            if (bit < 0) {
+                return -1;
+            }
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    /**
+     * Creates a JSON writer configured like Gson's default one, which escapes HTML characters.
+     *
+     * @param out the character stream to write to
+     * @return the JSON writer
+     */
+    public static JsonWriter open(Writer out) {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setHtmlSafe(true);
+        return writer;
+    }
+
+    /**
+     * Writes one holiday as a JSON object. Null fields are left out, as Gson does by default.
+     *
+     * @param writer the JSON writer
+     * @param holiday the holiday to write
+     * @throws IOException if the underlying stream fails
+     */
+    public static void write(JsonWriter writer, Holiday holiday) throws IOException {
+        write(writer, holiday, ALL_FIELDS);
+    }
+
+    /**
+     * Writes the selected fields of one holiday as a JSON object.
+     *
+     * @param writer the JSON writer
+     * @param holiday the holiday to write
+     * @param fields the field mask, see {@link #parseFields(String)}
+     * @throws IOException if the underlying stream fails
+     */
+    public static void write(JsonWriter writer, Holiday holiday, int fields) throws IOException {
+        writer.beginObject();
+        if ((fields & ID) != 0) {
+            writer.name("id").value(holiday.getId());
+        }
+        if ((fields & TITLE) != 0) {
+            writeString(writer, "title", holiday.getTitle());
+        }
+        if ((fields & COUNTRY) != 0) {
+            writeString(writer, "country", holiday.getCountry());
+        }
+        if ((fields & CITY) != 0) {
+            writeString(writer, "city", holiday.getCity());
+        }
+        if ((fields & DURATION) != 0) {
+            writeString(writer, "duration", holiday.getDuration());
+        }
+        if ((fields & SEASON) != 0) {
+            writeString(writer, "season", holiday.getSeason());
+        }
+        if ((fields & DESCRIPTION) != 0) {
+            writeString(writer, "description", holiday.getDescription());
+        }
+        if ((fields & PRICE) != 0) {
+            writer.name("price").value(holiday.getPrice());
+        }
+        String[] photos = holiday.getPhotos();
+        if ((fields & PHOTOS) != 0 && photos != null) {
+            writer.name("photos").beginArray();
+            for (String photo : photos) {
+                writer.value(photo);
+            }
+            writer.endArray();
+        }
+        int[] rating = holiday.getRating();
+        if ((fields & RATING) != 0 && rating != null) {
+            writer.name("rating").beginArray();
+            for (int value : rating) {
+                writer.value(value);
+            }
+            writer.endArray();
+        }
+        long[] histogram = holiday.getRatingHistogram();
+        if ((fields & RATING_HISTOGRAM) != 0 && histogram != null) {
+            writer.name("rating_histogram").beginArray();
+            for (long value : histogram) {
+                writer.value(value);
+            }
+            writer.endArray();
+        }
+        if ((fields & AVERAGE_RATING) != 0) {
+            writer.name("average_rating").value(holiday.getAverageRating());
+        }
+        if ((fields & VERSION) != 0) {
+            writer.name("version").value(holiday.getVersion());
+        }
+        writer.endObject();
+    }
+
+    private static void writeString(JsonWriter writer, String name, String value) throws IOException {
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.example;
+
+/**
+ * Receives the changes applied to the catalog, e.g. to keep secondary indexes up to date.
+ * Callbacks run on the thread that made the change, while the changed holiday is still locked,
+ * so changes to one holiday arrive in order. A new holiday is reported just before it can be found
+ * in the repository, so nothing else can happen to it first. Implementations must be quick and must not block.
+ */
+public interface HolidayListener {
+
+    default void onCreated(Holiday holiday) {
+    }
+
+    default void onUpdated(Holiday holiday) {
+    }
+
+    default void onDeleted(Holiday holiday) {
+    }
+
+    default void onRated(Holiday holiday, int rating) {
+    }
+
+    /**
+     * Called once for many votes added together. By default each vote is passed to {@link #onRated(Holiday, int)};
+     * listeners that only look at the new average should override this to do their work once.
+     *
+     * @param holiday the rated holiday
+     * @param votes the number of new votes per star, index 0 holding the 1 star votes
+     */
+    default void onRatedBatch(Holiday holiday, long[] votes) {
+        for (int i = 0; i < votes.length; i++) {
+            for (long j = 0; j < votes[i]; j++) {
+                onRated(holiday, i + 1);
+            }
+        }
+    }
+
+    default void onRatingsReset(Holiday holiday) {
+    }
+}
@@ -0,0 +1,314 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Saves the holiday catalog to disk in the background.
+ * Request handlers only mark the catalog as changed; a single writer thread coalesces those changes
+ * and writes one snapshot per flush interval, or sooner once the number of changes reaches the threshold.
+ * Snapshots are written to a temporary file first and then renamed over the data file,
+ * so a crash during a write never leaves a truncated "holidays.json" behind.
+ *
+ * <p>With a {@link MutationLog}, each change is made durable by the log instead, and a snapshot
+ * becomes a compaction step. Changes are held back only while the holiday list and the log position
+ * are copied; the snapshot is then written from that copy while changes go on, and afterwards only
+ * the log records the snapshot contains are dropped.
+ * Snapshots can then be taken far less often, because the log already holds every change.
+ * Each snapshot then stores the sequence number of the last log record it contains, written as
+ * {"logSequence": n, "holidays": [...]} instead of a plain array, so replay can skip those records
+ * even when the log could not be cut after the snapshot was written.
+ */
+public class HolidayPersistence implements HolidayStore {
+    private static final long LOG_SYNC_INTERVAL_MILLIS = 100;
+
+    private final HolidayRepository repository;
+    private final Path file;
+    private final MutationLog log;
+    private final boolean syncOnWrite;
+    private final Gson gson;
+    private final long dirtyThreshold;
+    private final long flushIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong dirtyCount = new AtomicLong();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Guarded by flushLock
+    private long bytesWritten;
+    private volatile Path binaryFile;
+    private volatile Metrics metrics;
+
+    /**
+     * Creates the persistence stage without a mutation log. Its background writer runs after {@link #start()}.
+     *
+     * @param repository the catalog to save
+     * @param file the data file, e.g. "holidays.json"
+     * @param flushIntervalMillis how often pending changes are written
+     * @param dirtyThreshold the number of pending changes that triggers an early write
+     */
+    public HolidayPersistence(HolidayRepository repository, Path file, long flushIntervalMillis, long dirtyThreshold) {
+        this(repository, file, null, false, flushIntervalMillis, dirtyThreshold);
+    }
+
+    /**
+     * Creates the persistence stage. Its background writer runs after {@link #start()}.
+     *
+     * @param repository the catalog to save
+     * @param file the data file, e.g. "holidays.json"
+     * @param log the mutation log attached to the repository, or null to save snapshots only
+     * @param syncOnWrite whether {@link #markDirty()} waits until the log is forced to disk
+     * @param flushIntervalMillis how often pending changes are written as a new snapshot
+     * @param dirtyThreshold the number of pending changes that triggers an early snapshot
+     */
+    public HolidayPersistence(HolidayRepository repository, Path file, MutationLog log, boolean syncOnWrite,
+                              long flushIntervalMillis, long dirtyThreshold) {
+        this.repository = repository;
+        this.file = file;
+        this.log = log;
+        this.syncOnWrite = syncOnWrite;
+        this.gson = new Gson();
+        this.dirtyThreshold = Math.max(1, dirtyThreshold);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "holiday-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts writing snapshots every flush interval and, unless every change waits for it, forcing the log
+     * to disk in the background. Until then changes are only saved by {@link #flush()} or once the number
+     * of changes reaches the threshold.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (log != null && !syncOnWrite) {
+            scheduler.scheduleWithFixedDelay(this::syncLogQuietly, LOG_SYNC_INTERVAL_MILLIS, LOG_SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Records that the catalog has changed and needs to be saved.
+     * Without a mutation log this method does not block on I/O. With a log in sync-on-write mode
+     * it returns once the change is forced to disk, sharing the fsync with concurrent writers.
+     *
+     * @throws IOException if the mutation log could not be written
+     */
+    @Override
+    public void markDirty() throws IOException {
+        markDirty(1);
+    }
+
+    /**
+     * Records that the catalog has changed the given number of times.
+     *
+     * @param changes the number of changes
+     * @throws IOException if the mutation log could not be written
+     */
+    @Override
+    public void markDirty(long changes) throws IOException {
+        if (log != null && syncOnWrite) {
+            long start = System.nanoTime();
+            log.sync();
+            Metrics current = metrics;
+            if (current != null) {
+                current.recordLogSync(System.nanoTime() - start);
+            }
+        }
+        if (dirtyCount.addAndGet(changes) >= dirtyThreshold && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Also writes every snapshot in the binary format, which loads faster than JSON at startup.
+     *
+     * @param binaryFile the binary snapshot file, or null to write JSON only
+     */
+    public void setBinarySnapshotFile(Path binaryFile) {
+        this.binaryFile = binaryFile;
+    }
+
+    /**
+     * Reports flush times, written bytes and log sync waits to the given metrics.
+     *
+     * @param metrics the server metrics
+     */
+    @Override
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public long pendingChanges() {
+        return dirtyCount.get();
+    }
+
+    /**
+     * Writes the catalog to disk if there are unsaved changes.
+     *
+     * @throws IOException if the snapshot could not be written
+     */
+    @Override
+    public void flush() throws IOException {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            long pending = dirtyCount.getAndSet(0);
+            if (pending == 0) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                if (log == null) {
+                    writeSnapshot(repository.getAll(), null);
+                } else {
+                    Checkpoint checkpoint = repository.checkpoint(() -> new Checkpoint(repository.getAll(), log.mark()));
+                    writeSnapshot(checkpoint.holidays(), checkpoint.mark());
+                    log.truncate(checkpoint.mark());
+                }
+                recordFlush(start, false);
+            } catch (IOException | RuntimeException e) {
+                recordFlush(start, true);
+                // Keep the changes pending so the next flush retries them
+                dirtyCount.addAndGet(pending);
+                throw e;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background writer, writes any remaining changes and closes the mutation log.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.out.println("Error closing mutation log: " + e);
+            }
+        }
+    }
+
+    private void syncLogQuietly() {
+        try {
+            log.sync();
+        } catch (IOException e) {
+            System.out.println("Error writing mutation log: " + e);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.out.println("Error saving holidays: " + e);
+        }
+    }
+
+    private void recordFlush(long start, boolean failed) {
+        Metrics current = metrics;
+        if (current != null) {
+            current.recordFlush(System.nanoTime() - start, failed ? 0 : bytesWritten, failed);
+        }
+    }
+
+    /**
+     * Writes the snapshot files. Called only by the thread holding the flush lock.
+     *
+     * @param mark the log position the holidays were taken at, or null without a mutation log
+     */
+    private void writeSnapshot(List<Holiday> holidays, MutationLog.Mark mark) throws IOException {
+        bytesWritten = 0;
+        long logSequence = mark != null ? mark.sequence() : 0;
+        writeAtomically(file, temp -> {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                if (mark == null) {
+                    gson.toJson(holidays, writer);
+                    return;
+                }
+                JsonWriter json = gson.newJsonWriter(writer);
+                json.beginObject();
+                json.name("logSequence").value(logSequence);
+                json.name("holidays").beginArray();
+                for (Holiday holiday : holidays) {
+                    gson.toJson(holiday, Holiday.class, json);
+                }
+                json.endArray();
+                json.endObject();
+                json.flush();
+            }
+        });
+        // Written after the JSON file, so a binary snapshot that is newer than the JSON file is never stale
+        Path binary = binaryFile;
+        if (binary != null) {
+            writeAtomically(binary, temp -> BinarySnapshot.write(temp, holidays, logSequence));
+        }
+    }
+
+    private void writeAtomically(Path file, SnapshotWriter writer) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            writer.write(temp);
+            bytesWritten += Files.size(temp);
+            // The log is truncated after this snapshot, so it must reach the disk first
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private interface SnapshotWriter {
+        void write(Path temp) throws IOException;
+    }
+
+    /**
+     * The catalog as it was at a log position.
+     */
+    private record Checkpoint(List<Holiday> holidays, MutationLog.Mark mark) {
+    }
+
+    /**
+     * The holidays read from a snapshot file.
+     *
+     * @param holidays the holidays, in file order
+     * @param logSequence the sequence number of the last mutation log record they contain, 0 if none
+     */
+    public record Snapshot(List<Holiday> holidays, long logSequence) {
+    }
+}
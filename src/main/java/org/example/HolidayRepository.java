@@ -0,0 +1,709 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Holds the holiday catalog together with an id index, so point lookups and id allocation
+ * take constant time regardless of the catalog size.
+ * The backing list is kept in ID order, which is also the order used for responses and for saving to "holidays.json".
+ *
+ * <p>The repository is safe for concurrent use, and reads never take a lock. The id index is a concurrent map,
+ * and the ID-ordered list is copy-on-write: structural changes (adding and removing holidays) publish
+ * a new list with one volatile write, under a lock that only writers take. Adding holidays with new,
+ * higher IDs appends to the list in place, so only removals and out-of-order inserts copy it.
+ * Changes to a single holiday are serialized by a lock stripe chosen by the holiday ID,
+ * so requests for different holidays do not block each other.
+ * Listeners are called outside the structure lock, so slow listeners never hold up other structural changes.
+ *
+ * <p>A stored holiday is never changed in place. Each change is applied to a copy, which then replaces
+ * the previous version in the holiday's slot with one volatile write. Readers therefore always see a
+ * complete version of a holiday without taking its lock, and may keep using it after it was replaced.
+ * Edits increase the holiday's version, so an edit can be made conditional on the version the client last saw.
+ *
+ * <p>When a {@link MutationLog} is attached, every change is appended to it while the change is applied,
+ * so the log order matches the order of changes to each holiday. A {@link #checkpoint(Supplier)}
+ * briefly holds back all changes to take a view of the catalog together with the matching log position.
+ *
+ * <p>How ratings are stored is chosen once, at construction. In compact rating mode, the default, only the
+ * 1-5 histogram is stored, so a vote costs the same however many votes the holiday has, and the histogram
+ * alone gives the average. Otherwise each holiday keeps its ever-growing raw ratings array together with
+ * a {@link RatingCalculator.RatingAggregate}, so averages still take constant time but every vote copies the array.
+ * Either way a vote changes a copy of the holiday like any other change, so the ratings a reader sees never change.
+ *
+ * <p>Compact storage mode goes further for large catalogs: besides compact ratings, country, city, season
+ * and duration share one String instance per distinct value through a {@link StringPool}.
+ */
+public class HolidayRepository {
+    /** Passed as the expected version to update a holiday whatever its version. */
+    public static final long ANY_VERSION = -1;
+    private static final int STRIPES = 64;
+
+    private volatile SlotList holidays;
+    private final ConcurrentHashMap<Long, Slot> index;
+    private final AtomicLong idSequence;
+    private final ReentrantLock structureLock = new ReentrantLock();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final RatingStorage ratings;
+    private final StringPool strings;
+    private final List<HolidayListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile MutationLog log;
+
+    /**
+     * Creates the repository from loaded holidays, keeping only rating histograms.
+     *
+     * @param holidays the holidays loaded from the data file
+     */
+    public HolidayRepository(List<Holiday> holidays) {
+        this(holidays, true);
+    }
+
+    /**
+     * Creates the repository from loaded holidays.
+     *
+     * @param holidays the holidays loaded from the data file
+     * @param compactRatings whether to store only rating histograms instead of raw ratings
+     */
+    public HolidayRepository(List<Holiday> holidays, boolean compactRatings) {
+        this(holidays, compactRatings, false);
+    }
+
+    /**
+     * Creates the repository from loaded holidays.
+     *
+     * @param holidays the holidays loaded from the data file
+     * @param compactRatings whether to store only rating histograms instead of raw ratings
+     * @param compactStorage whether to pool repeated strings and keep only rating histograms; implies compact ratings
+     */
+    public HolidayRepository(List<Holiday> holidays, boolean compactRatings, boolean compactStorage) {
+        this.ratings = compactRatings || compactStorage ? new HistogramRatings() : new RawRatings();
+        this.strings = compactStorage ? new StringPool() : null;
+        List<Holiday> sorted = new ArrayList<>(holidays);
+        sorted.sort(Comparator.comparingLong(Holiday::getId));
+        Slot[] slots = new Slot[sorted.size()];
+        this.index = new ConcurrentHashMap<>(sorted.size() * 2);
+        long maxId = 0;
+        for (int i = 0; i < slots.length; i++) {
+            Holiday holiday = sorted.get(i);
+            prepare(holiday);
+            slots[i] = new Slot(holiday);
+            index.put(holiday.getId(), slots[i]);
+            maxId = Math.max(maxId, holiday.getId());
+        }
+        this.holidays = new SlotList(slots, slots.length);
+        this.idSequence = new AtomicLong(maxId);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Finds a holiday by its ID.
+     * The returned holiday is the current version and is never changed; later changes replace it with a new one.
+     *
+     * @param id the holiday ID
+     * @return the holiday, or null if no holiday has the given ID
+     */
+    public Holiday findById(long id) {
+        Slot slot = slotOf(id);
+        return slot == null ? null : slot.holiday;
+    }
+
+    /**
+     * Applies the reader to the current version of the holiday with the given ID.
+     * Versions are never changed in place, so the reader sees a consistent holiday without taking its lock.
+     *
+     * @param id the holiday ID
+     * @param reader the function to apply to the holiday
+     * @return the result of the reader, or null if no holiday has the given ID
+     */
+    public <T> T read(long id, Function<Holiday, T> reader) {
+        Holiday holiday = findById(id);
+        return holiday == null ? null : reader.apply(holiday);
+    }
+
+    /**
+     * Returns a copy of the holidays in catalog order.
+     *
+     * @return a new list containing all holidays
+     */
+    public List<Holiday> getAll() {
+        SlotList list = holidays;
+        return list.snapshot(0, list.size);
+    }
+
+    /**
+     * Returns up to {@code limit} holidays with an ID greater than {@code afterId}, in ID order.
+     * Finding the start of the page takes logarithmic time, so large catalogs can be walked page by page
+     * without copying the whole list.
+     *
+     * @param afterId the last ID of the previous page, or 0 to start from the beginning
+     * @param limit the maximum number of holidays to return
+     * @return a new list holding the page
+     */
+    public List<Holiday> getPage(long afterId, int limit) {
+        SlotList list = holidays;
+        int position = list.positionOf(afterId);
+        int from = position >= 0 ? position + 1 : -position - 1;
+        int to = (int) Math.min(list.size, (long) from + Math.max(0, limit));
+        return list.snapshot(from, to);
+    }
+
+    /**
+     * Returns up to {@code limit} holidays starting at the given position in ID order.
+     *
+     * @param offset the number of holidays to skip
+     * @param limit the maximum number of holidays to return
+     * @return a new list holding the page
+     */
+    public List<Holiday> getRange(int offset, int limit) {
+        SlotList list = holidays;
+        int from = Math.min(list.size, Math.max(0, offset));
+        int to = (int) Math.min(list.size, (long) from + Math.max(0, limit));
+        return list.snapshot(from, to);
+    }
+
+    public int size() {
+        return holidays.size;
+    }
+
+    /**
+     * Assigns the next free ID to the holiday and adds it to the catalog.
+     *
+     * @param holiday the holiday to add
+     * @return the ID assigned to the holiday
+     */
+    public long add(Holiday holiday) {
+        addAll(List.of(holiday));
+        return holiday.getId();
+    }
+
+    /**
+     * Adds several holidays at once. Their IDs are reserved as one consecutive range
+     * and all of them are inserted under a single acquisition of the structure lock.
+     * Listeners are told about the new holidays before they can be found, so no other change
+     * of a new holiday can reach the listeners before its creation.
+     *
+     * @param newHolidays the holidays to add
+     * @return the ID assigned to the first holiday; the others follow in order
+     */
+    public long addAll(List<Holiday> newHolidays) {
+        newHolidays.forEach(this::prepare);
+        checkpointLock.readLock().lock();
+        try {
+            long firstId = idSequence.getAndAdd(newHolidays.size()) + 1;
+            long id = firstId;
+            for (Holiday holiday : newHolidays) {
+                holiday.setId(id++);
+                log(MutationLog.Record.create(holiday));
+                listeners.forEach(listener -> listener.onCreated(holiday));
+            }
+            structureLock.lock();
+            try {
+                SlotList list = holidays;
+                for (Holiday holiday : newHolidays) {
+                    Slot slot = new Slot(holiday);
+                    list = list.insert(slot);
+                    index.put(slot.id, slot);
+                }
+                holidays = list;
+            } finally {
+                structureLock.unlock();
+            }
+            return firstId;
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a holiday with an already assigned ID, replacing any holiday with the same ID.
+     * Used when replaying the mutation log; the change itself is not logged again.
+     *
+     * @param holiday the holiday to add
+     */
+    public void restore(Holiday holiday) {
+        long id = holiday.getId();
+        idSequence.accumulateAndGet(id, Math::max);
+        prepare(holiday);
+        boolean replaced;
+        structureLock.lock();
+        try {
+            Slot previous = index.get(id);
+            replaced = previous != null;
+            if (replaced) {
+                previous.holiday = holiday;
+            } else {
+                Slot slot = new Slot(holiday);
+                holidays = holidays.insert(slot);
+                index.put(id, slot);
+            }
+        } finally {
+            structureLock.unlock();
+        }
+        if (replaced) {
+            listeners.forEach(listener -> listener.onUpdated(holiday));
+        } else {
+            listeners.forEach(listener -> listener.onCreated(holiday));
+        }
+    }
+
+    /**
+     * Removes the holiday with the given ID from the catalog.
+     *
+     * @param id the holiday ID
+     * @return the removed holiday, or null if no holiday has the given ID
+     */
+    public Holiday remove(long id) {
+        ReentrantLock lock = stripeFor(id);
+        checkpointLock.readLock().lock();
+        lock.lock();
+        try {
+            Slot slot;
+            structureLock.lock();
+            try {
+                slot = index.remove(id);
+                if (slot == null) {
+                    return null;
+                }
+                holidays = holidays.remove(id);
+            } finally {
+                structureLock.unlock();
+            }
+            // Still under the holiday's lock, so the listeners see its changes in order
+            Holiday holiday = slot.holiday;
+            log(MutationLog.Record.delete(id));
+            listeners.forEach(listener -> listener.onDeleted(holiday));
+            return holiday;
+        } finally {
+            lock.unlock();
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the editable fields of a holiday with the values of the given template.
+     * The ID and ratings of the stored holiday are kept.
+     *
+     * @param id the holiday ID
+     * @param changes a holiday holding the new field values
+     * @return true if the holiday was found and updated
+     */
+    public boolean update(long id, Holiday changes) {
+        return update(id, changes, ANY_VERSION) == UpdateResult.UPDATED;
+    }
+
+    /**
+     * Replaces the editable fields of a holiday if it still has the expected version, and increases the version.
+     * The check and the change happen under the holiday's lock, so of two edits based on the same version
+     * exactly one succeeds.
+     *
+     * @param id the holiday ID
+     * @param changes a holiday holding the new field values
+     * @param expectedVersion the version the change is based on, or {@link #ANY_VERSION} to skip the check
+     * @return whether the holiday was updated, not found, or had another version
+     */
+    public UpdateResult update(long id, Holiday changes, long expectedVersion) {
+        ReentrantLock lock = stripeFor(id);
+        checkpointLock.readLock().lock();
+        lock.lock();
+        try {
+            Slot slot = slotOf(id);
+            if (slot == null) {
+                return UpdateResult.NOT_FOUND;
+            }
+            if (expectedVersion != ANY_VERSION && slot.holiday.getVersion() != expectedVersion) {
+                return UpdateResult.CONFLICT;
+            }
+            Holiday holiday = slot.holiday.copy();
+            holiday.setTitle(changes.getTitle());
+            holiday.setCountry(intern(changes.getCountry()));
+            holiday.setCity(intern(changes.getCity()));
+            holiday.setDuration(intern(changes.getDuration()));
+            holiday.setSeason(intern(changes.getSeason()));
+            holiday.setDescription(changes.getDescription());
+            holiday.setPrice(changes.getPrice());
+            holiday.setPhotos(changes.getPhotos());
+            holiday.setVersion(holiday.getVersion() + 1);
+            slot.holiday = holiday;
+            log(MutationLog.Record.update(id, changes));
+            listeners.forEach(listener -> listener.onUpdated(holiday));
+            return UpdateResult.UPDATED;
+        } finally {
+            lock.unlock();
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a rating to the holiday and updates its average rating.
+     *
+     * @param id the holiday ID
+     * @param rating the rating to add, expected to be in the 1-5 range; other values are ignored
+     * @return true if the holiday was found and rated
+     */
+    public boolean rate(long id, int rating) {
+        long[] votes = new long[RatingCalculator.MAX_RATING];
+        if (rating >= RatingCalculator.MIN_RATING && rating <= RatingCalculator.MAX_RATING) {
+            votes[rating - 1] = 1;
+        }
+        ReentrantLock lock = stripeFor(id);
+        checkpointLock.readLock().lock();
+        lock.lock();
+        try {
+            Slot slot = slotOf(id);
+            if (slot == null) {
+                return false;
+            }
+            Holiday holiday = slot.holiday.copy();
+            ratings.add(holiday, votes);
+            slot.holiday = holiday;
+            log(MutationLog.Record.rate(id, rating));
+            listeners.forEach(listener -> listener.onRated(holiday, rating));
+            return true;
+        } finally {
+            lock.unlock();
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds many votes to the holiday at once, e.g. the votes collected by a {@link VoteQueue}.
+     * The holiday is locked, copied, logged and reported to listeners once for all of them.
+     *
+     * @param id the holiday ID
+     * @param votes the number of new votes per star, index 0 holding the 1 star votes
+     * @return true if the holiday was found and rated
+     */
+    public boolean rateBatch(long id, long[] votes) {
+        ReentrantLock lock = stripeFor(id);
+        checkpointLock.readLock().lock();
+        lock.lock();
+        try {
+            Slot slot = slotOf(id);
+            if (slot == null) {
+                return false;
+            }
+            Holiday holiday = slot.holiday.copy();
+            ratings.add(holiday, votes);
+            slot.holiday = holiday;
+            log(MutationLog.Record.rateBatch(id, votes));
+            listeners.forEach(listener -> listener.onRatedBatch(holiday, votes));
+            return true;
+        } finally {
+            lock.unlock();
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clears all ratings of the holiday and resets its average rating to 0.
+     *
+     * @param id the holiday ID
+     * @return true if the holiday was found and reset
+     */
+    public boolean resetRatings(long id) {
+        ReentrantLock lock = stripeFor(id);
+        checkpointLock.readLock().lock();
+        lock.lock();
+        try {
+            Slot slot = slotOf(id);
+            if (slot == null) {
+                return false;
+            }
+            Holiday holiday = slot.holiday.copy();
+            ratings.reset(holiday);
+            slot.holiday = holiday;
+            log(MutationLog.Record.reset(id));
+            listeners.forEach(listener -> listener.onRatingsReset(holiday));
+            return true;
+        } finally {
+            lock.unlock();
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registers a listener that is told about every following change.
+     *
+     * @param listener the listener
+     */
+    public void addListener(HolidayListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Attaches the log that records every following change.
+     *
+     * @param log the mutation log, or null to stop logging
+     */
+    public void setMutationLog(MutationLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Runs the action while no changes are applied to the catalog, e.g. to copy the holiday list
+     * together with the mutation log position it corresponds to. Reads are not blocked.
+     * Stored holidays are never changed, so the copied list can then be written out while changes go on.
+     *
+     * @param action the action to run, which should be short
+     * @return the result of the action
+     */
+    public <T> T checkpoint(Supplier<T> action) {
+        checkpointLock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Converts a holiday to the configured storage mode before it joins the catalog.
+     */
+    private void prepare(Holiday holiday) {
+        if (strings != null) {
+            holiday.setCountry(strings.intern(holiday.getCountry()));
+            holiday.setCity(strings.intern(holiday.getCity()));
+            holiday.setDuration(strings.intern(holiday.getDuration()));
+            holiday.setSeason(strings.intern(holiday.getSeason()));
+        }
+        ratings.prepare(holiday);
+    }
+
+    private String intern(String value) {
+        return strings != null ? strings.intern(value) : value;
+    }
+
+    private void log(MutationLog.Record record) {
+        MutationLog current = log;
+        if (current != null) {
+            current.append(record);
+        }
+    }
+
+    private Slot slotOf(long id) {
+        return index.get(id);
+    }
+
+    private ReentrantLock stripeFor(long id) {
+        return stripes[(int) ((id ^ (id >>> 32)) & (STRIPES - 1))];
+    }
+
+    /**
+     * How the ratings of the holidays are stored. Both strategies only ever change a fresh copy of a holiday.
+     */
+    private interface RatingStorage {
+
+        /**
+         * Converts the ratings of a holiday joining the catalog to this storage and sets its average.
+         */
+        void prepare(Holiday holiday);
+
+        /**
+         * Adds votes to a copy of a stored holiday and updates its average.
+         *
+         * @param votes the number of new votes per star, index 0 holding the 1 star votes
+         */
+        void add(Holiday copy, long[] votes);
+
+        /**
+         * Clears the ratings of a copy of a stored holiday.
+         */
+        void reset(Holiday copy);
+    }
+
+    /**
+     * Keeps the raw ratings array, which is what "holidays.json" stores, and an aggregate for the average.
+     * The array is replaced by a longer copy on each vote, which costs time in the number of votes the holiday has.
+     * The aggregate is only used by writers under the holiday's lock, so it is shared with the copies and
+     * changed in place; readers get the average from the holiday itself.
+     */
+    private static final class RawRatings implements RatingStorage {
+
+        @Override
+        public void prepare(Holiday holiday) {
+            RatingCalculator.RatingAggregate aggregate =
+                    RatingCalculator.RatingAggregate.of(holiday.getRating(), holiday.getRatingHistogram());
+            if (holiday.getRating() == null) {
+                holiday.setRating(aggregate.toRatings());
+            }
+            holiday.setRatingHistogram(null);
+            holiday.setRatingAggregate(aggregate);
+            holiday.setAverageRating(aggregate.getAverage());
+        }
+
+        @Override
+        public void add(Holiday copy, long[] votes) {
+            RatingCalculator.RatingAggregate aggregate = copy.getRatingAggregate();
+            int stars = Math.min(votes.length, RatingCalculator.MAX_RATING);
+            long added = 0;
+            for (int i = 0; i < stars; i++) {
+                aggregate.add(i + 1, votes[i]);
+                added += votes[i];
+            }
+            // One copy of the raw ratings for all votes instead of one per vote
+            int[] oldRating = copy.getRating();
+            int[] newRating = Arrays.copyOf(oldRating, Math.toIntExact(oldRating.length + added));
+            int position = oldRating.length;
+            for (int i = 0; i < stars; i++) {
+                Arrays.fill(newRating, position, position + (int) votes[i], i + 1);
+                position += (int) votes[i];
+            }
+            copy.setRating(newRating);
+            copy.setAverageRating(aggregate.getAverage());
+        }
+
+        @Override
+        public void reset(Holiday copy) {
+            copy.setRating(new int[0]);
+            copy.getRatingAggregate().reset();
+            copy.setAverageRating(0.0);
+        }
+    }
+
+    /**
+     * Keeps only the number of votes per star, which is all the average needs, so a holiday's rating state
+     * does not grow with its votes.
+     */
+    private static final class HistogramRatings implements RatingStorage {
+
+        @Override
+        public void prepare(Holiday holiday) {
+            long[] histogram = RatingCalculator.RatingAggregate
+                    .of(holiday.getRating(), holiday.getRatingHistogram()).getDistribution();
+            holiday.setRating(null);
+            holiday.setRatingHistogram(histogram);
+            holiday.setRatingAggregate(null);
+            holiday.setAverageRating(RatingCalculator.averageOf(histogram));
+        }
+
+        @Override
+        public void add(Holiday copy, long[] votes) {
+            long[] histogram = copy.getRatingHistogram().clone();
+            for (int i = 0; i < Math.min(votes.length, histogram.length); i++) {
+                histogram[i] += votes[i];
+            }
+            copy.setRatingHistogram(histogram);
+            copy.setAverageRating(RatingCalculator.averageOf(histogram));
+        }
+
+        @Override
+        public void reset(Holiday copy) {
+            copy.setRatingHistogram(new long[RatingCalculator.MAX_RATING]);
+            copy.setAverageRating(0.0);
+        }
+    }
+
+    /**
+     * The outcome of a conditional update.
+     */
+    public enum UpdateResult {
+        UPDATED, NOT_FOUND, CONFLICT
+    }
+
+    /**
+     * The slots in ID order, as published to readers. A published list is never changed, except that
+     * the newest one is appended to in place while its array has room: a slot written past the end of
+     * a list is only read through the longer list published after it.
+     * Only the holder of the structure lock creates new lists.
+     */
+    private static final class SlotList {
+        private final Slot[] slots;
+        private final int size;
+
+        SlotList(Slot[] slots, int size) {
+            this.slots = slots;
+            this.size = size;
+        }
+
+        /**
+         * Returns a list that also holds the slot. A slot with a higher ID than all others is appended
+         * in place, doubling the array when it is full; any other slot is inserted into a copy.
+         */
+        SlotList insert(Slot slot) {
+            if (size == 0 || slots[size - 1].id < slot.id) {
+                Slot[] target = size < slots.length ? slots : Arrays.copyOf(slots, Math.max(16, size * 2));
+                target[size] = slot;
+                return new SlotList(target, size + 1);
+            }
+            int position = -positionOf(slot.id) - 1;
+            Slot[] copy = new Slot[Math.max(16, size + 1 + (size >> 1))];
+            System.arraycopy(slots, 0, copy, 0, position);
+            copy[position] = slot;
+            System.arraycopy(slots, position, copy, position + 1, size - position);
+            return new SlotList(copy, size + 1);
+        }
+
+        /**
+         * Returns a copy without the slot of the given ID.
+         */
+        SlotList remove(long id) {
+            int position = positionOf(id);
+            if (position < 0) {
+                return this;
+            }
+            Slot[] copy = new Slot[Math.max(16, size + (size >> 1))];
+            System.arraycopy(slots, 0, copy, 0, position);
+            System.arraycopy(slots, position + 1, copy, position, size - position - 1);
+            return new SlotList(copy, size - 1);
+        }
+
+        /**
+         * Binary searches the list.
+         *
+         * @return the position of the ID, or (-(insertion point) - 1) if it is not in the list
+         */
+        int positionOf(long id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long middleId = slots[middle].id;
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Copies the current versions of the holidays between the two positions.
+         */
+        List<Holiday> snapshot(int from, int to) {
+            List<Holiday> result = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                result.add(slots[i].holiday);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Holds the current version of one holiday. The list and the index point to slots, so replacing
+     * a version does not touch either of them or the structure lock.
+     */
+    private static final class Slot {
+        private final long id;
+        private volatile Holiday holiday;
+
+        Slot(Holiday holiday) {
+            this.id = holiday.getId();
+            this.holiday = holiday;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example;
+
+import java.io.IOException;
+
+/**
+ * Durable storage behind the in-memory catalog. Request handlers change the {@link HolidayRepository}
+ * and then call {@link #markDirty()}, and the store makes those changes durable in its own way:
+ * {@link HolidayPersistence} writes "holidays.json" snapshots and a mutation log,
+ * {@link JdbcHolidayStore} writes the changes to a database.
+ * The store is chosen at startup with the "holidays.store" property.
+ */
+public interface HolidayStore extends AutoCloseable {
+
+    /**
+     * Records that the catalog has changed once. Depending on the store this may return at once
+     * or only when the change is durable.
+     *
+     * @throws IOException if the change could not be saved
+     */
+    void markDirty() throws IOException;
+
+    /**
+     * Records that the catalog has changed the given number of times.
+     *
+     * @param changes the number of changes
+     * @throws IOException if the changes could not be saved
+     */
+    void markDirty(long changes) throws IOException;
+
+    /**
+     * Saves all pending changes now.
+     *
+     * @throws IOException if the changes could not be saved
+     */
+    void flush() throws IOException;
+
+    /**
+     * Reports the store's timings to the given metrics.
+     *
+     * @param metrics the server metrics
+     */
+    void setMetrics(Metrics metrics);
+
+    /**
+     * Saves pending changes and releases the store's resources.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,414 @@
+package org.example;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stores the catalog in a database, e.g. MySQL, instead of "holidays.json".
+ * The {@link HolidayRepository} stays the fully loaded cache in front of the database: reads never touch it,
+ * and each change is queued as a listener callback and written by the next {@link #markDirty()} call.
+ * Only one thread writes at a time; it takes everything queued so far, including the changes of other
+ * requests waiting behind it, and writes them in one transaction with JDBC batches.
+ *
+ * Example:
+ * java -Dholidays.store=jdbc -Dholidays.jdbcUrl='jdbc:mysql://localhost:3306/holidays?rewriteBatchedStatements=true' -jar HolidayList.jar
+ */
+public class JdbcHolidayStore implements HolidayStore, HolidayListener {
+    private static final int BATCH_SIZE = 500;
+
+    private static final String CREATE_HOLIDAYS = "CREATE TABLE IF NOT EXISTS holidays ("
+            + "id BIGINT PRIMARY KEY, title VARCHAR(255), country VARCHAR(255), city VARCHAR(255), "
+            + "duration VARCHAR(255), season VARCHAR(64), description TEXT, price DOUBLE NOT NULL, photos TEXT, "
+            + "version BIGINT NOT NULL DEFAULT 0)";
+    private static final String CREATE_RATINGS = "CREATE TABLE IF NOT EXISTS holiday_ratings ("
+            + "holiday_id BIGINT NOT NULL, rating INT NOT NULL, INDEX (holiday_id))";
+    private static final String UPSERT_HOLIDAY = "INSERT INTO holidays "
+            + "(id, title, country, city, duration, season, description, price, photos, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE title = VALUES(title), country = VALUES(country), city = VALUES(city), "
+            + "duration = VALUES(duration), season = VALUES(season), description = VALUES(description), "
+            + "price = VALUES(price), photos = VALUES(photos), version = VALUES(version)";
+    private static final String INSERT_RATING = "INSERT INTO holiday_ratings (holiday_id, rating) VALUES (?, ?)";
+    private static final String DELETE_RATINGS = "DELETE FROM holiday_ratings WHERE holiday_id = ?";
+    private static final String DELETE_HOLIDAY = "DELETE FROM holidays WHERE id = ?";
+    private static final String SELECT_HOLIDAYS = "SELECT id, title, country, city, duration, season, description, price, photos, version "
+            + "FROM holidays ORDER BY id";
+    private static final String SELECT_RATINGS = "SELECT holiday_id, rating, COUNT(*) FROM holiday_ratings "
+            + "GROUP BY holiday_id, rating";
+
+    private final ConnectionPool pool;
+    private final ConcurrentLinkedQueue<Change> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Gson gson = new Gson();
+    private volatile HolidayRepository repository;
+    private volatile Metrics metrics;
+
+    /**
+     * Creates the store. Call {@link #createSchema()} and {@link #loadAll()} before building the repository,
+     * then {@link #attach(HolidayRepository)} to start recording its changes.
+     *
+     * @param pool the connections to the database
+     */
+    public JdbcHolidayStore(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Creates the tables if they do not exist yet.
+     *
+     * @throws IOException if the database cannot be reached or the tables cannot be created
+     */
+    public void createSchema() throws IOException {
+        try {
+            Connection connection = pool.borrow();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_HOLIDAYS);
+                statement.execute(CREATE_RATINGS);
+            } finally {
+                pool.release(connection);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error creating database tables", e);
+        }
+    }
+
+    /**
+     * Loads the whole catalog. Ratings are read as counts per star, so the repository gets rating histograms
+     * and converts them to the configured rating mode.
+     *
+     * @return the holidays ordered by ID
+     * @throws IOException if the catalog cannot be read
+     */
+    public List<Holiday> loadAll() throws IOException {
+        try {
+            Connection connection = pool.borrow();
+            try (Statement statement = connection.createStatement()) {
+                List<Holiday> holidays = new ArrayList<>();
+                LongObjectMap<Holiday> byId = new LongObjectMap<>(1024);
+                try (ResultSet rows = statement.executeQuery(SELECT_HOLIDAYS)) {
+                    while (rows.next()) {
+                        String photos = rows.getString(9);
+                        Holiday holiday = new Holiday(rows.getString(2), rows.getString(3), rows.getString(4),
+                                rows.getString(5), rows.getString(6), rows.getString(7), rows.getDouble(8),
+                                photos != null ? gson.fromJson(photos, String[].class) : null, null);
+                        holiday.setId(rows.getLong(1));
+                        holiday.setVersion(rows.getLong(10));
+                        holiday.setRatingHistogram(new long[5]);
+                        holidays.add(holiday);
+                        byId.put(holiday.getId(), holiday);
+                    }
+                }
+                try (ResultSet rows = statement.executeQuery(SELECT_RATINGS)) {
+                    while (rows.next()) {
+                        Holiday holiday = byId.get(rows.getLong(1));
+                        int rating = rows.getInt(2);
+                        if (holiday != null && rating >= 1 && rating <= 5) {
+                            holiday.getRatingHistogram()[rating - 1] += rows.getLong(3);
+                        }
+                    }
+                }
+                return holidays;
+            } finally {
+                pool.release(connection);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error loading holidays from the database", e);
+        }
+    }
+
+    /**
+     * Writes holidays and all their ratings in one transaction, e.g. to move an existing "holidays.json" into an empty database.
+     *
+     * @param holidays the holidays to write
+     * @throws IOException if the holidays cannot be written; nothing is written in that case
+     */
+    public void importAll(List<Holiday> holidays) throws IOException {
+        writeLock.lock();
+        try {
+            Connection connection = pool.borrow();
+            try (PreparedStatement upsert = connection.prepareStatement(UPSERT_HOLIDAY);
+                 PreparedStatement insertRating = connection.prepareStatement(INSERT_RATING)) {
+                connection.setAutoCommit(false);
+                int holidaysBatched = 0;
+                int ratingsBatched = 0;
+                for (Holiday holiday : holidays) {
+                    bindHoliday(upsert, HolidayRow.of(holiday));
+                    upsert.addBatch();
+                    holidaysBatched++;
+                    long[] histogram = RatingCalculator.RatingAggregate
+                            .of(holiday.getRating(), holiday.getRatingHistogram()).getDistribution();
+                    for (int star = 0; star < histogram.length; star++) {
+                        for (long i = 0; i < histogram[star]; i++) {
+                            insertRating.setLong(1, holiday.getId());
+                            insertRating.setInt(2, star + 1);
+                            insertRating.addBatch();
+                            ratingsBatched++;
+                        }
+                    }
+                    if (holidaysBatched >= BATCH_SIZE || ratingsBatched >= BATCH_SIZE) {
+                        // Holidays first, so a database with foreign keys added later still accepts the ratings
+                        upsert.executeBatch();
+                        insertRating.executeBatch();
+                        holidaysBatched = 0;
+                        ratingsBatched = 0;
+                    }
+                }
+                upsert.executeBatch();
+                insertRating.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                rollbackQuietly(connection);
+                throw e;
+            } finally {
+                pool.release(connection);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error importing holidays into the database", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Starts recording the changes of the repository. Must be called once, before the server starts.
+     *
+     * @param repository the catalog loaded with {@link #loadAll()}
+     */
+    public void attach(HolidayRepository repository) {
+        this.repository = repository;
+        repository.addListener(this);
+    }
+
+    @Override
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onCreated(Holiday holiday) {
+        pending.add(new Change(Kind.UPSERT, holiday.getId(), 0));
+    }
+
+    @Override
+    public void onUpdated(Holiday holiday) {
+        pending.add(new Change(Kind.UPSERT, holiday.getId(), 0));
+    }
+
+    @Override
+    public void onDeleted(Holiday holiday) {
+        pending.add(new Change(Kind.DELETE, holiday.getId(), 0));
+    }
+
+    @Override
+    public void onRated(Holiday holiday, int rating) {
+        pending.add(new Change(Kind.RATE, holiday.getId(), rating));
+    }
+
+    @Override
+    public void onRatingsReset(Holiday holiday) {
+        pending.add(new Change(Kind.RESET, holiday.getId(), 0));
+    }
+
+    /**
+     * Writes the queued changes and returns once they are committed, so a request is only answered
+     * after its change is in the database.
+     *
+     * @throws IOException if the changes could not be written; they are kept and retried with the next write
+     */
+    @Override
+    public void markDirty() throws IOException {
+        write();
+    }
+
+    @Override
+    public void markDirty(long changes) throws IOException {
+        write();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        write();
+    }
+
+    /**
+     * Writes the remaining changes and closes all connections.
+     */
+    @Override
+    public void close() {
+        try {
+            write();
+        } catch (IOException e) {
+            System.out.println("Error saving holidays to the database: " + e);
+        }
+        pool.close();
+    }
+
+    /**
+     * Writes all queued changes in one transaction. Threads that queue changes while another thread is writing
+     * wait for the lock and then usually find their changes already committed.
+     */
+    private void write() throws IOException {
+        writeLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            List<Change> changes = new ArrayList<>();
+            Change change;
+            while ((change = pending.poll()) != null) {
+                changes.add(change);
+            }
+            boolean failed = true;
+            try {
+                writeChanges(changes);
+                failed = false;
+            } catch (SQLException e) {
+                // Put the changes back in front of newer ones, so their order is kept when they are retried
+                List<Change> newer = new ArrayList<>();
+                while ((change = pending.poll()) != null) {
+                    newer.add(change);
+                }
+                pending.addAll(changes);
+                pending.addAll(newer);
+                throw new IOException("Error saving holidays to the database", e);
+            } finally {
+                Metrics currentMetrics = metrics;
+                if (currentMetrics != null) {
+                    currentMetrics.recordFlush(System.nanoTime() - start, 0, failed);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the changes in order. Consecutive changes of the same kind share one JDBC batch,
+     * so a burst of ratings becomes a single round trip.
+     */
+    private void writeChanges(List<Change> changes) throws SQLException {
+        Connection connection = pool.borrow();
+        try (PreparedStatement upsert = connection.prepareStatement(UPSERT_HOLIDAY);
+             PreparedStatement insertRating = connection.prepareStatement(INSERT_RATING);
+             PreparedStatement deleteRatings = connection.prepareStatement(DELETE_RATINGS);
+             PreparedStatement deleteHoliday = connection.prepareStatement(DELETE_HOLIDAY)) {
+            connection.setAutoCommit(false);
+            Kind batchKind = null;
+            int batched = 0;
+            for (Change change : changes) {
+                if (batched > 0 && (change.kind() != batchKind || batched == BATCH_SIZE)) {
+                    executeBatch(batchKind, upsert, insertRating, deleteRatings, deleteHoliday);
+                    batched = 0;
+                }
+                batchKind = change.kind();
+                switch (change.kind()) {
+                    case UPSERT -> {
+                        // The current state is written, so several updates of one holiday cost one row each
+                        HolidayRow row = repository.read(change.id(), HolidayRow::of);
+                        if (row == null) {
+                            continue;
+                        }
+                        bindHoliday(upsert, row);
+                        upsert.addBatch();
+                    }
+                    case RATE -> {
+                        insertRating.setLong(1, change.id());
+                        insertRating.setInt(2, change.rating());
+                        insertRating.addBatch();
+                    }
+                    case RESET -> {
+                        deleteRatings.setLong(1, change.id());
+                        deleteRatings.addBatch();
+                    }
+                    case DELETE -> {
+                        deleteRatings.setLong(1, change.id());
+                        deleteRatings.addBatch();
+                        deleteHoliday.setLong(1, change.id());
+                        deleteHoliday.addBatch();
+                    }
+                }
+                batched++;
+            }
+            if (batched > 0) {
+                executeBatch(batchKind, upsert, insertRating, deleteRatings, deleteHoliday);
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            rollbackQuietly(connection);
+            throw e;
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    private static void executeBatch(Kind kind, PreparedStatement upsert, PreparedStatement insertRating,
+                                     PreparedStatement deleteRatings, PreparedStatement deleteHoliday) throws SQLException {
+        switch (kind) {
+            case UPSERT -> upsert.executeBatch();
+            case RATE -> insertRating.executeBatch();
+            case RESET -> deleteRatings.executeBatch();
+            case DELETE -> {
+                deleteRatings.executeBatch();
+                deleteHoliday.executeBatch();
+            }
+        }
+    }
+
+    private static void bindHoliday(PreparedStatement statement, HolidayRow row) throws SQLException {
+        statement.setLong(1, row.id());
+        statement.setString(2, row.title());
+        statement.setString(3, row.country());
+        statement.setString(4, row.city());
+        statement.setString(5, row.duration());
+        statement.setString(6, row.season());
+        statement.setString(7, row.description());
+        statement.setDouble(8, row.price());
+        statement.setString(9, row.photos());
+        statement.setLong(10, row.version());
+    }
+
+    private static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.out.println("Error rolling back database transaction: " + e);
+        }
+    }
+
+    private enum Kind {
+        UPSERT, DELETE, RATE, RESET
+    }
+
+    /**
+     * One queued change. Ratings carry their value, because the repository does not keep single votes in compact mode.
+     */
+    private record Change(Kind kind, long id, int rating) {
+    }
+
+    /**
+     * The columns of one holiday.
+     */
+    private record HolidayRow(long id, String title, String country, String city, String duration, String season,
+                              String description, double price, String photos, long version) {
+
+        private static final Gson GSON = new Gson();
+
+        static HolidayRow of(Holiday holiday) {
+            String[] photos = holiday.getPhotos();
+            return new HolidayRow(holiday.getId(), holiday.getTitle(), holiday.getCountry(), holiday.getCity(),
+                    holiday.getDuration(), holiday.getSeason(), holiday.getDescription(), holiday.getPrice(),
+                    photos != null ? GSON.toJson(photos) : null, holiday.getVersion());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in microseconds with log-linear buckets, in the style of HdrHistogram.
+ * Each power of two is split into 32 linear sub-buckets, so any recorded value is known to within about 3%,
+ * from 1 microsecond up to about 12 days, in a fixed array of counters.
+ * Recording a value takes constant time and does not allocate, so it can be used on the request path.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos the duration in nanoseconds, e.g. the difference of two {@link System#nanoTime()} calls
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.min(Math.max(0, nanos / 1000), MAX_VALUE);
+        counts.incrementAndGet(bucketOf(micros));
+        count.increment();
+        sum.add(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of all recorded durations.
+     *
+     * @return the sum in microseconds
+     */
+    public long getSumMicros() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the durations below which the given fractions of the recorded values fall.
+     * All quantiles are read in one pass over the buckets.
+     *
+     * @param quantiles the fractions in increasing order, e.g. 0.5 and 0.99
+     * @return the durations in microseconds, in the order of the fractions; all 0 if nothing was recorded
+     */
+    public long[] quantilesMicros(double... quantiles) {
+        long[] values = new long[quantiles.length];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return values;
+        }
+        long seen = 0;
+        int next = 0;
+        for (int i = 0; i < BUCKETS && next < quantiles.length; i++) {
+            seen += counts.get(i);
+            while (next < quantiles.length && seen >= Math.max(1, (long) Math.ceil(quantiles[next] * total))) {
+                values[next++] = highestValueOf(i);
+            }
+        }
+        return values;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
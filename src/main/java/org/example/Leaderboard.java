@@ -0,0 +1,187 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Rankings of the catalog for top-N lists such as "top rated" and "cheapest per season".
+ * Rankings of the whole catalog come from the sorted price and rating indexes of {@link SearchIndex};
+ * this class only adds skip lists ordered by average rating and by price per season.
+ * The rankings follow every change through {@link HolidayListener}, so reading the top n holidays
+ * costs O(log N + n) instead of sorting the catalog on every request.
+ */
+public class Leaderboard implements HolidayListener {
+    private final SearchIndex catalog;
+    private final ConcurrentHashMap<String, Rankings> bySeason = new ConcurrentHashMap<>();
+    // Only holidays with a season
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the rankings; they are filled by {@link #attach(HolidayRepository)}.
+     *
+     * @param catalog the search index that ranks the whole catalog
+     */
+    public Leaderboard(SearchIndex catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Ranks the current catalog per season and registers for its changes.
+     * Must be called once, before the server starts accepting requests.
+     *
+     * @param repository the catalog to rank
+     */
+    public void attach(HolidayRepository repository) {
+        for (Holiday holiday : repository.getAll()) {
+            add(holiday);
+        }
+        repository.addListener(this);
+    }
+
+    /**
+     * Returns the first holidays of a ranking.
+     *
+     * @param order the ranking order
+     * @param season the season to rank within (case-insensitive), or null or empty for the whole catalog
+     * @param n the maximum number of holidays
+     * @return the IDs of the top holidays, best first
+     */
+    public List<Long> top(Order order, String season, int n) {
+        String normalized = SearchIndex.normalizeFilter(season);
+        if (normalized == null) {
+            return order == Order.AVERAGE_RATING ? catalog.bestRated(n) : catalog.cheapest(n);
+        }
+        Rankings rankings = bySeason.get(normalized);
+        List<Long> result = new ArrayList<>(Math.max(0, Math.min(n, 1024)));
+        if (rankings == null) {
+            return result;
+        }
+        for (SortKey key : order == Order.AVERAGE_RATING ? rankings.byRating : rankings.byPrice) {
+            if (result.size() >= n) {
+                break;
+            }
+            result.add(key.id());
+        }
+        return result;
+    }
+
+    @Override
+    public void onCreated(Holiday holiday) {
+        add(holiday);
+    }
+
+    @Override
+    public void onUpdated(Holiday holiday) {
+        remove(holiday.getId());
+        add(holiday);
+    }
+
+    @Override
+    public void onDeleted(Holiday holiday) {
+        remove(holiday.getId());
+    }
+
+    @Override
+    public void onRated(Holiday holiday, int rating) {
+        rerank(holiday);
+    }
+
+    @Override
+    public void onRatedBatch(Holiday holiday, long[] votes) {
+        rerank(holiday);
+    }
+
+    @Override
+    public void onRatingsReset(Holiday holiday) {
+        rerank(holiday);
+    }
+
+    private void add(Holiday holiday) {
+        String season = SearchIndex.normalize(holiday.getSeason());
+        if (season == null) {
+            return;
+        }
+        Entry entry = new Entry(season, holiday.getPrice(), holiday.getAverageRating());
+        entries.put(holiday.getId(), entry);
+        bySeason.computeIfAbsent(season, key -> new Rankings()).add(holiday.getId(), entry);
+    }
+
+    private void remove(long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        Rankings rankings = bySeason.get(entry.season);
+        if (rankings != null) {
+            rankings.remove(id, entry);
+        }
+    }
+
+    /**
+     * Moves a rated holiday within its season's rating ranking; the price ranking is not touched.
+     */
+    private void rerank(Holiday holiday) {
+        long id = holiday.getId();
+        Entry entry = entries.get(id);
+        if (entry == null || entry.rating == holiday.getAverageRating()) {
+            return;
+        }
+        Entry updated = new Entry(entry.season, entry.price, holiday.getAverageRating());
+        entries.put(id, updated);
+        Rankings rankings = bySeason.get(entry.season);
+        if (rankings != null) {
+            rankings.byRating.remove(new SortKey(-entry.rating, id));
+            rankings.byRating.add(new SortKey(-updated.rating, id));
+        }
+    }
+
+    /**
+     * The order of a top-N list.
+     */
+    public enum Order {
+        /** Highest average rating first. */
+        AVERAGE_RATING,
+        /** Lowest price first. */
+        PRICE;
+
+        /**
+         * Parses the "by" request parameter.
+         *
+         * @param value "average_rating" or "price"
+         * @return the order, or null if the value is not known
+         */
+        public static Order parse(String value) {
+            if ("average_rating".equals(value)) {
+                return AVERAGE_RATING;
+            }
+            if ("price".equals(value)) {
+                return PRICE;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The values a holiday is currently ranked by, kept so its old keys can be removed on change.
+     */
+    private record Entry(String season, double price, double rating) {
+    }
+
+    private static class Rankings {
+        private final ConcurrentSkipListSet<SortKey> byPrice = new ConcurrentSkipListSet<>();
+        // Keyed by the negated rating, so the best rated holidays come first and ties are broken by ID
+        private final ConcurrentSkipListSet<SortKey> byRating = new ConcurrentSkipListSet<>();
+
+        void add(long id, Entry entry) {
+            byPrice.add(new SortKey(entry.price, id));
+            byRating.add(new SortKey(-entry.rating, id));
+        }
+
+        void remove(long id, Entry entry) {
+            byPrice.remove(new SortKey(entry.price, id));
+            byRating.remove(new SortKey(-entry.rating, id));
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package org.example;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.sun.net.httpserver.HttpServer;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,25 +26,133 @@ public class Main {
      */
     public static void main(String[] args) throws IOException {
         //    public static Gson gson = new Gson();
-        List<Holiday> holidays = loadHolidays();
-        HolidayHandler holidayHandler = new HolidayHandler(holidays);
+        // Small responses are otherwise held back by Nagle's algorithm, which adds about 40 ms to each request
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        HolidayRepository repository;
+        HolidayStore store;
+        if ("jdbc".equals(HolidayConfig.store())) {
+            JdbcHolidayStore jdbcStore = createJdbcStore();
+            repository = new HolidayRepository(loadFromDatabase(jdbcStore), HolidayConfig.compactRatings(),
+                    HolidayConfig.compactStorage());
+            jdbcStore.attach(repository);
+            store = jdbcStore;
+        } else {
+            HolidayPersistence.Snapshot snapshot = loadSnapshot();
+            repository = new HolidayRepository(snapshot.holidays(), HolidayConfig.compactRatings(),
+                    HolidayConfig.compactStorage());
+            store = createPersistence(repository, snapshot.logSequence());
+        }
+        Metrics metrics = new Metrics(HolidayHandler.PATHS);
+        metrics.attach(repository);
+        store.setMetrics(metrics);
+        HolidayHandler holidayHandler = new HolidayHandler(repository, store, metrics);
 
         HttpServer server = HttpServer.create(new InetSocketAddress(8000), 0);
         server.createContext("/createHoliday", holidayHandler);
         server.createContext("/getHoliday", holidayHandler);
         server.createContext("/getHolidays", holidayHandler);
+        server.createContext("/searchHolidays", holidayHandler);
+        server.createContext("/findHolidays", holidayHandler);
+        server.createContext("/topHolidays", holidayHandler);
         server.createContext("/updateHoliday", holidayHandler);
         server.createContext("/deleteHoliday", holidayHandler);
         server.createContext("/resetRatings", holidayHandler);
         server.createContext("/rateHoliday", holidayHandler);
-        server.setExecutor(null);
+        server.createContext("/batch", holidayHandler);
+        server.createContext("/changes", holidayHandler);
+        server.createContext("/metrics", holidayHandler);
+        server.setExecutor(HolidayConfig.createExecutor());
         server.start();
+
+        // Write pending changes before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            holidayHandler.close();
+            store.close();
+        }));
+    }
+
+    /**
+     * Connects to the database configured with the "holidays.jdbc*" properties and creates the tables if needed.
+     *
+     * @return the database store
+     * @throws IOException if the database cannot be reached
+     */
+    private static JdbcHolidayStore createJdbcStore() throws IOException {
+        ConnectionPool pool = new ConnectionPool(HolidayConfig.jdbcUrl(), HolidayConfig.jdbcUser(),
+                HolidayConfig.jdbcPassword(), HolidayConfig.jdbcPoolSize(), HolidayConfig.jdbcTimeoutMillis());
+        JdbcHolidayStore store = new JdbcHolidayStore(pool);
+        try {
+            store.createSchema();
+        } catch (IOException e) {
+            pool.close();
+            throw e;
+        }
+        return store;
     }
 
+    /**
+     * Loads the catalog from the database. An empty database is filled from "holidays.json" first,
+     * so switching an existing installation to the database keeps its holidays.
+     *
+     * @param store the database store
+     * @return the holidays in the database
+     * @throws IOException if the database cannot be read or written
+     */
+    private static List<Holiday> loadFromDatabase(JdbcHolidayStore store) throws IOException {
+        List<Holiday> holidays = store.loadAll();
+        if (holidays.isEmpty() && HolidayConfig.dataFile().toFile().exists()) {
+            List<Holiday> imported = loadHolidays();
+            if (!imported.isEmpty()) {
+                store.importAll(imported);
+                System.out.println("Imported " + imported.size() + " holidays from " + HolidayConfig.dataFile());
+                holidays = imported;
+            }
+        }
+        return holidays;
+    }
+
+    /**
+     * Sets up saving of the catalog. With the mutation log enabled, the log left by the previous run is
+     * replayed on top of the loaded snapshot first and then compacted into a new snapshot.
+     *
+     * @param repository the catalog loaded from "holidays.json"
+     * @param logSequence the sequence number of the last log record the loaded snapshot contains
+     * @return the persistence stage used by the handlers
+     * @throws IOException if the mutation log cannot be read or opened
+     */
+    private static HolidayPersistence createPersistence(HolidayRepository repository, long logSequence) throws IOException {
+        Path binaryFile = HolidayConfig.binarySnapshotEnabled() ? HolidayConfig.binarySnapshotFile() : null;
+        if (!HolidayConfig.mutationLogEnabled()) {
+            HolidayPersistence persistence = new HolidayPersistence(repository, HolidayConfig.dataFile(),
+                    HolidayConfig.flushIntervalMillis(), HolidayConfig.flushThreshold());
+            persistence.setBinarySnapshotFile(binaryFile);
+            persistence.start();
+            return persistence;
+        }
+        MutationLog.Replay replay = MutationLog.replay(HolidayConfig.mutationLogFile(), repository, logSequence);
+        long replayed = replay.applied();
+        MutationLog log = new MutationLog(HolidayConfig.mutationLogFile(), replay.sequence());
+        repository.setMutationLog(log);
+        HolidayPersistence persistence = new HolidayPersistence(repository, HolidayConfig.dataFile(), log,
+                HolidayConfig.mutationLogSync(), HolidayConfig.compactIntervalMillis(), HolidayConfig.compactThreshold());
+        persistence.setBinarySnapshotFile(binaryFile);
+        persistence.start();
+        if (replayed > 0) {
+            System.out.println("Replayed " + replayed + " changes from " + log.getFile());
+            persistence.markDirty(replayed);
+            persistence.flush();
+        }
+        return persistence;
+    }
 
     /**
      Loads a list of holidays from a JSON file named "holidays.json".
      * If the file does not exist, it will be created with an empty list.
+     * When binary snapshots are enabled and "holidays.bin" is at least as new as the JSON file,
+     * the binary snapshot is loaded instead, which skips JSON parsing.
      *
      * @return an ArrayList of Holiday objects
      * Example:
@@ -47,23 +160,68 @@ public class Main {
      * // holidays will be an empty list if the file is new, or a list of holidays if the file already exists
      */
     public static List<Holiday> loadHolidays() {
-        File file = new File("holidays.json");
-        Gson gson = new Gson();
+        return loadSnapshot().holidays();
+    }
+
+    /**
+     * Loads the catalog like {@link #loadHolidays()}, together with the mutation log sequence number
+     * stored in the snapshot. The JSON file is either a plain array of holidays or, when it was written
+     * with the mutation log enabled, an object holding "logSequence" and the "holidays" array.
+     *
+     * @return the holidays and the log sequence number, 0 if the file has none
+     */
+    public static HolidayPersistence.Snapshot loadSnapshot() {
+        File file = HolidayConfig.dataFile().toFile();
         if (!file.exists()){
             try (FileWriter writer = new FileWriter(file)) {
                 writer.write("[]");
             } catch (Exception e) {
                 System.out.println("Error creating new holidays file: " + e);
-                return new ArrayList<>();
+                return new HolidayPersistence.Snapshot(new ArrayList<>(), 0);
+            }
+        }
+        if (HolidayConfig.binarySnapshotEnabled()) {
+            File binary = HolidayConfig.binarySnapshotFile().toFile();
+            if (binary.exists() && binary.lastModified() >= file.lastModified()) {
+                try {
+                    return BinarySnapshot.read(binary.toPath());
+                } catch (IOException e) {
+                    System.out.println("Error loading binary snapshot, falling back to JSON: " + e);
+                }
             }
         }
-        try (FileReader reader = new FileReader(file)) {
-            Holiday[] holidaysArray = gson.fromJson(reader, Holiday[].class);
-            return new ArrayList<>(List.of(holidaysArray));
+        try (JsonReader reader = new JsonReader(new BufferedReader(new FileReader(file, StandardCharsets.UTF_8), 1 << 16))) {
+            // Read one holiday at a time, so the catalog is never held as an array and a list at once
+            Gson gson = new Gson();
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                return new HolidayPersistence.Snapshot(readHolidays(reader, gson), 0);
+            }
+            List<Holiday> holidays = new ArrayList<>();
+            long logSequence = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "logSequence" -> logSequence = reader.nextLong();
+                    case "holidays" -> holidays = readHolidays(reader, gson);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new HolidayPersistence.Snapshot(holidays, logSequence);
         } catch (Exception e) {
             System.out.println("Error loading holidays: " + e);
-            return new ArrayList<>();
+            return new HolidayPersistence.Snapshot(new ArrayList<>(), 0);
+        }
+    }
+
+    private static List<Holiday> readHolidays(JsonReader reader, Gson gson) throws IOException {
+        List<Holiday> holidays = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            holidays.add(gson.fromJson(reader, Holiday.class));
         }
+        reader.endArray();
+        return holidays;
     }
 
 }
\ No newline at end of file
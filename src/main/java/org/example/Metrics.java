@@ -0,0 +1,266 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the server, exposed in the Prometheus text format at "/metrics".
+ * All series are created up front for a fixed set of paths and status codes, so recording a request
+ * is a map lookup plus a few counter increments and never allocates.
+ * Latency is kept per path and status class, so slow errors do not hide in the quantiles of fast successes.
+ * Requests to unknown paths are counted under the path "other" to keep the number of series bounded.
+ */
+public class Metrics implements HolidayListener {
+    private static final int[] STATUS_CODES = {200, 202, 204, 304, 400, 404, 405, 409, 412, 413, 429, 500, 503};
+    private static final int OTHER_STATUS = STATUS_CODES.length;
+    private static final int[] STATUS_SLOTS = new int[600];
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    // 1xx-5xx, and "other" for requests that got no response or an unknown status
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx", "other"};
+
+    static {
+        Arrays.fill(STATUS_SLOTS, OTHER_STATUS);
+        for (int i = 0; i < STATUS_CODES.length; i++) {
+            STATUS_SLOTS[STATUS_CODES[i]] = i;
+        }
+    }
+
+    private volatile HolidayRepository repository;
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+    private final Route otherRoute = new Route("other");
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    private final LongAdder flushErrors = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LatencyHistogram logSyncLatency = new LatencyHistogram();
+    private final LongAdder ratings = new LongAdder();
+    private final LongAdder ratingResets = new LongAdder();
+    private volatile VoteQueue voteQueue;
+
+    /**
+     * Creates the metrics for the given paths.
+     *
+     * @param paths the request paths served by the handler
+     */
+    public Metrics(String... paths) {
+        for (String path : paths) {
+            routes.put(path, new Route(path));
+        }
+    }
+
+    /**
+     * Starts reporting the size of the catalog and counting its ratings. Must be called once, before the server starts.
+     *
+     * @param repository the catalog
+     */
+    public void attach(HolidayRepository repository) {
+        this.repository = repository;
+        repository.addListener(this);
+    }
+
+    /**
+     * Returns the metrics of a request path. The map is not changed after construction,
+     * so concurrent lookups are safe.
+     *
+     * @param path the request path, e.g. "/getHoliday"
+     * @return the metrics of the path, or the shared "other" metrics for unknown paths
+     */
+    public Route route(String path) {
+        Route route = routes.get(path);
+        return route != null ? route : otherRoute;
+    }
+
+    /**
+     * Records one snapshot write.
+     *
+     * @param nanos how long the flush took, including the time changes were held back
+     * @param bytes the number of bytes written, 0 if the flush failed
+     * @param failed whether the flush failed
+     */
+    public void recordFlush(long nanos, long bytes, boolean failed) {
+        flushLatency.recordNanos(nanos);
+        bytesWritten.add(bytes);
+        if (failed) {
+            flushErrors.increment();
+        }
+    }
+
+    /**
+     * Records how long a write request waited for its mutation log record to be forced to disk.
+     *
+     * @param nanos the wait in nanoseconds
+     */
+    public void recordLogSync(long nanos) {
+        logSyncLatency.recordNanos(nanos);
+    }
+
+    /**
+     * Reports the depth and counters of the vote queue, when votes are queued.
+     *
+     * @param voteQueue the vote queue
+     */
+    public void setVoteQueue(VoteQueue voteQueue) {
+        this.voteQueue = voteQueue;
+    }
+
+    @Override
+    public void onRated(Holiday holiday, int rating) {
+        ratings.increment();
+    }
+
+    @Override
+    public void onRatedBatch(Holiday holiday, long[] votes) {
+        for (long count : votes) {
+            ratings.add(count);
+        }
+    }
+
+    @Override
+    public void onRatingsReset(Holiday holiday) {
+        ratingResets.increment();
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format.
+     *
+     * @param out the writer for the response body
+     * @throws IOException if writing fails
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        out.write("# HELP holidays_http_requests_total Requests handled, by path and status code.\n");
+        out.write("# TYPE holidays_http_requests_total counter\n");
+        for (Route route : allRoutes()) {
+            for (int i = 0; i <= OTHER_STATUS; i++) {
+                long value = route.statuses[i].sum();
+                if (value > 0) {
+                    String status = i == OTHER_STATUS ? "other" : Integer.toString(STATUS_CODES[i]);
+                    out.write("holidays_http_requests_total{path=\"" + route.path + "\",status=\"" + status + "\"} " + value + "\n");
+                }
+            }
+        }
+
+        out.write("# HELP holidays_http_request_duration_seconds Time spent handling requests, by path and status class.\n");
+        out.write("# TYPE holidays_http_request_duration_seconds summary\n");
+        for (Route route : allRoutes()) {
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                if (route.latency[i].getCount() > 0) {
+                    writeSummary(out, "holidays_http_request_duration_seconds",
+                            "path=\"" + route.path + "\",status_class=\"" + STATUS_CLASSES[i] + "\",", route.latency[i]);
+                }
+            }
+        }
+
+        out.write("# HELP holidays_http_response_bytes_total Response body bytes sent, by path.\n");
+        out.write("# TYPE holidays_http_response_bytes_total counter\n");
+        for (Route route : allRoutes()) {
+            out.write("holidays_http_response_bytes_total{path=\"" + route.path + "\"} " + route.responseBytes.sum() + "\n");
+        }
+
+        out.write("# HELP holidays_persistence_flush_duration_seconds Time spent writing snapshots.\n");
+        out.write("# TYPE holidays_persistence_flush_duration_seconds summary\n");
+        writeSummary(out, "holidays_persistence_flush_duration_seconds", "", flushLatency);
+        out.write("# HELP holidays_persistence_flush_errors_total Snapshot writes that failed.\n");
+        out.write("# TYPE holidays_persistence_flush_errors_total counter\n");
+        out.write("holidays_persistence_flush_errors_total " + flushErrors.sum() + "\n");
+        out.write("# HELP holidays_persistence_bytes_written_total Snapshot bytes written.\n");
+        out.write("# TYPE holidays_persistence_bytes_written_total counter\n");
+        out.write("holidays_persistence_bytes_written_total " + bytesWritten.sum() + "\n");
+        out.write("# HELP holidays_wal_sync_duration_seconds Time write requests waited for the mutation log to reach the disk.\n");
+        out.write("# TYPE holidays_wal_sync_duration_seconds summary\n");
+        writeSummary(out, "holidays_wal_sync_duration_seconds", "", logSyncLatency);
+
+        HolidayRepository catalog = repository;
+        if (catalog != null) {
+            out.write("# HELP holidays_catalog_size Holidays in the catalog.\n");
+            out.write("# TYPE holidays_catalog_size gauge\n");
+            out.write("holidays_catalog_size " + catalog.size() + "\n");
+        }
+        out.write("# HELP holidays_ratings_total Ratings added.\n");
+        out.write("# TYPE holidays_ratings_total counter\n");
+        out.write("holidays_ratings_total " + ratings.sum() + "\n");
+        out.write("# HELP holidays_rating_resets_total Rating resets.\n");
+        out.write("# TYPE holidays_rating_resets_total counter\n");
+        out.write("holidays_rating_resets_total " + ratingResets.sum() + "\n");
+
+        VoteQueue votes = voteQueue;
+        if (votes != null) {
+            out.write("# HELP holidays_vote_queue_depth Votes waiting to be applied.\n");
+            out.write("# TYPE holidays_vote_queue_depth gauge\n");
+            out.write("holidays_vote_queue_depth " + votes.size() + "\n");
+            out.write("# HELP holidays_vote_queue_capacity Maximum number of waiting votes.\n");
+            out.write("# TYPE holidays_vote_queue_capacity gauge\n");
+            out.write("holidays_vote_queue_capacity " + votes.getCapacity() + "\n");
+            out.write("# HELP holidays_votes_accepted_total Votes queued.\n");
+            out.write("# TYPE holidays_votes_accepted_total counter\n");
+            out.write("holidays_votes_accepted_total " + votes.getAccepted() + "\n");
+            out.write("# HELP holidays_votes_rejected_total Votes rejected because the queue was full.\n");
+            out.write("# TYPE holidays_votes_rejected_total counter\n");
+            out.write("holidays_votes_rejected_total " + votes.getRejected() + "\n");
+            out.write("# HELP holidays_vote_batches_total Batches of votes applied.\n");
+            out.write("# TYPE holidays_vote_batches_total counter\n");
+            out.write("holidays_vote_batches_total " + votes.getBatches() + "\n");
+        }
+    }
+
+    private Iterable<Route> allRoutes() {
+        List<Route> all = new ArrayList<>(routes.values());
+        all.add(otherRoute);
+        return all;
+    }
+
+    private static void writeSummary(Writer out, String name, String labels, LatencyHistogram histogram) throws IOException {
+        long[] values = histogram.quantilesMicros(QUANTILES);
+        for (int i = 0; i < QUANTILES.length; i++) {
+            out.write(name + "{" + labels + "quantile=\"" + QUANTILES[i] + "\"} " + values[i] / 1e6 + "\n");
+        }
+        String suffixLabels = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        out.write(name + "_sum" + suffixLabels + " " + histogram.getSumMicros() / 1e6 + "\n");
+        out.write(name + "_count" + suffixLabels + " " + histogram.getCount() + "\n");
+    }
+
+    /**
+     * The request metrics of one path.
+     */
+    public static class Route {
+        private final String path;
+        private final LongAdder[] statuses = new LongAdder[OTHER_STATUS + 1];
+        private final LatencyHistogram[] latency = new LatencyHistogram[STATUS_CLASSES.length];
+        private final LongAdder responseBytes = new LongAdder();
+
+        Route(String path) {
+            this.path = path;
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = new LongAdder();
+            }
+            for (int i = 0; i < latency.length; i++) {
+                latency[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * Records one handled request.
+         *
+         * @param status the response status code, or -1 if no response was sent
+         * @param nanos how long the request took
+         */
+        public void record(int status, long nanos) {
+            statuses[status >= 0 && status < STATUS_SLOTS.length ? STATUS_SLOTS[status] : OTHER_STATUS].increment();
+            latency[status >= 100 && status < 600 ? status / 100 - 1 : STATUS_CLASSES.length - 1].recordNanos(nanos);
+        }
+
+        /**
+         * Counts response body bytes sent. Bodies of known length are counted once when sent,
+         * streamed bodies as they are written, also after the request itself was recorded.
+         *
+         * @param bytes the number of bytes
+         */
+        public void addResponseBytes(long bytes) {
+            responseBytes.add(bytes);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only log of catalog mutations, stored as one JSON record per line (e.g. "holidays.log").
+ * Every change is appended here before it is considered saved, so a durable write costs one small
+ * append instead of rewriting the whole catalog. On startup the log is replayed on top of the last
+ * "holidays.json" snapshot, and each new snapshot drops the records it contains from the log again.
+ *
+ * <p>Appends only copy the record into an in-memory buffer. {@link #sync()} writes the buffer through
+ * a {@link FileChannel} and forces it to disk; concurrent callers share one write and one fsync
+ * (group commit), so the cost of the fsync is spread over every request that is waiting for it.
+ * A batch that fails to be written is kept and written again by the next sync, after the file is cut back
+ * to the end of the last durable record, so a transient error neither loses records that are already
+ * applied in memory nor leaves a torn line in the middle of the log.
+ *
+ * <p>Every record carries a sequence number that keeps growing across restarts, and each snapshot stores
+ * the sequence number of the last record it contains. Replay skips the records a snapshot already holds,
+ * so a crash between writing a snapshot and cutting the log cannot apply a change twice.
+ */
+public class MutationLog implements AutoCloseable {
+    private final Path file;
+    private FileChannel channel;
+    private final Gson gson = new Gson();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    // Sequence number of the last appended record
+    private long sequence;
+    private long appendedCount;
+    private long durableCount;
+    private long truncatedCount;
+    // Bytes appended since the log was opened, including those dropped from the front of the file since
+    private long appendedLength;
+    // Position of the first byte of the file in appendedLength terms
+    private long fileStart;
+    // File length up to the end of the last record forced to disk
+    private long durableLength;
+    private boolean syncing;
+    private IOException failure;
+
+    /**
+     * Opens the log for appending, creating the file if it does not exist.
+     *
+     * @param file the log file
+     * @param sequence the sequence number of the last record written so far, see {@link #replay}
+     * @throws IOException if the file cannot be opened
+     */
+    public MutationLog(Path file, long sequence) throws IOException {
+        this.file = file;
+        this.sequence = sequence;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.durableLength = channel.size();
+        this.appendedLength = durableLength;
+    }
+
+    /**
+     * Replays the records of a log file on top of the repository.
+     * Records up to the snapshot's sequence number are already contained in it and are skipped.
+     * A torn record at the end of the file, left by a crash in the middle of a write, is ignored.
+     *
+     * @param file the log file
+     * @param repository the repository loaded from the last snapshot
+     * @param snapshotSequence the sequence number stored in that snapshot
+     * @return the number of records applied and the last sequence number used
+     * @throws IOException if the file cannot be read
+     */
+    public static Replay replay(Path file, HolidayRepository repository, long snapshotSequence) throws IOException {
+        if (!Files.exists(file)) {
+            return new Replay(0, snapshotSequence);
+        }
+        Gson gson = new Gson();
+        long applied = 0;
+        long last = snapshotSequence;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Record record;
+                try {
+                    record = gson.fromJson(line, Record.class);
+                } catch (JsonParseException e) {
+                    System.out.println("Ignoring unreadable log record after " + applied + " records: " + e);
+                    break;
+                }
+                // Records written before sequence numbers were introduced have none and are always applied
+                if (record.sequence != null) {
+                    if (record.sequence <= snapshotSequence) {
+                        continue;
+                    }
+                    last = Math.max(last, record.sequence);
+                }
+                record.applyTo(repository);
+                applied++;
+            }
+        }
+        return new Replay(applied, last);
+    }
+
+    /**
+     * Adds a record to the log buffer. The record is durable only after a following {@link #sync()}.
+     *
+     * @param record the record to append
+     */
+    public void append(Record record) {
+        byte[] line = (gson.toJson(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            // The sequence number is put in front of the other fields, which are serialized outside the lock
+            byte[] prefix = ("{\"sequence\":" + ++sequence + ",").getBytes(StandardCharsets.US_ASCII);
+            pending.writeBytes(prefix);
+            pending.write(line, 1, line.length - 1);
+            appendedCount++;
+            appendedLength += prefix.length + line.length - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is forced to disk.
+     * If no other thread is writing, the calling thread writes all buffered records at once;
+     * otherwise it waits for the running write and joins the next one.
+     * If the write of the caller's records fails, they stay buffered and the next call writes them again.
+     *
+     * @throws IOException if this call's attempt to write the log failed
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            long target = appendedCount;
+            while (durableCount < target) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                ByteArrayOutputStream batch = pending;
+                long batchEnd = appendedCount;
+                long start = durableLength;
+                boolean retry = failure != null;
+                pending = new ByteArrayOutputStream();
+                lock.unlock();
+                byte[] bytes = batch.toByteArray();
+                IOException error = null;
+                try {
+                    write(bytes, start, retry);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                }
+                syncing = false;
+                synced.signalAll();
+                if (error != null) {
+                    // Put the batch back in front of the records appended meanwhile
+                    batch.writeBytes(pending.toByteArray());
+                    pending = batch;
+                    failure = error;
+                    throw new IOException("Mutation log write failed", error);
+                }
+                durableLength = start + bytes.length;
+                durableCount = batchEnd;
+                failure = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of records appended since the log was opened or last truncated.
+     *
+     * @return the record count
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return appendedCount - truncatedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current end of the log. Taken together with a view of the catalog while no changes
+     * are applied, it tells {@link #truncate(Mark)} which records a snapshot of that view contains.
+     *
+     * @return the position after the last appended record
+     */
+    public Mark mark() {
+        lock.lock();
+        try {
+            return new Mark(appendedCount, appendedLength, sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards the records before the mark after a snapshot containing them has been written.
+     * Records appended after the mark are kept, and appends go on while the log is cut;
+     * only syncs wait until the shortened file is in place.
+     *
+     * @param mark the end of the records contained in the snapshot
+     * @throws IOException if the log could not be written or shortened
+     */
+    public void truncate(Mark mark) throws IOException {
+        // Every record before the mark has to be in the file before the file is cut
+        sync();
+        long from;
+        long to;
+        lock.lock();
+        try {
+            while (syncing) {
+                synced.awaitUninterruptibly();
+            }
+            if (mark.length() <= fileStart) {
+                return;
+            }
+            // Keeps other writers off the file until it is replaced
+            syncing = true;
+            from = mark.length() - fileStart;
+            to = durableLength;
+        } finally {
+            lock.unlock();
+        }
+
+        FileChannel shortened = null;
+        try {
+            if (from == to) {
+                channel.truncate(0);
+                channel.force(true);
+            } else {
+                shortened = copyTail(from, to);
+            }
+        } finally {
+            lock.lock();
+            try {
+                if (shortened != null || from == to) {
+                    if (shortened != null) {
+                        channel.close();
+                        channel = shortened;
+                    }
+                    fileStart = mark.length();
+                    durableLength = to - from;
+                    truncatedCount = mark.records();
+                }
+                syncing = false;
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Copies the records from the given file position on into a new log file that replaces the current one.
+     *
+     * @return a channel appending to the new file
+     */
+    private FileChannel copyTail(long from, long to) throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long position = from;
+                while (position < to) {
+                    position += source.transferTo(position, to - position, target);
+                }
+                target.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes a batch at the end of the durable part of the file and forces it to disk.
+     *
+     * @param retry whether the previous write failed, possibly after writing part of its batch
+     */
+    private void write(byte[] bytes, long start, boolean retry) throws IOException {
+        if (retry) {
+            channel.truncate(start);
+        }
+        if (bytes.length == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * A position in the log, see {@link #mark()}.
+     *
+     * @param records the number of records appended before it
+     * @param length the number of bytes appended before it
+     * @param sequence the sequence number of the last record before it
+     */
+    public record Mark(long records, long length, long sequence) {
+    }
+
+    /**
+     * The outcome of {@link #replay}.
+     *
+     * @param applied the number of records applied
+     * @param sequence the sequence number new records continue from
+     */
+    public record Replay(long applied, long sequence) {
+    }
+
+    /**
+     * One catalog mutation as stored in the log.
+     */
+    public static class Record {
+        // Set only on records read back from the log; append writes it ahead of the other fields
+        private Long sequence;
+        private String op;
+        private long id;
+        private Holiday holiday;
+        private int rating;
+        private long[] votes;
+
+        private Record(String op, long id, Holiday holiday, int rating) {
+            this.op = op;
+            this.id = id;
+            this.holiday = holiday;
+            this.rating = rating;
+        }
+
+        public static Record create(Holiday holiday) {
+            return new Record("create", holiday.getId(), holiday, 0);
+        }
+
+        public static Record update(long id, Holiday changes) {
+            return new Record("update", id, changes, 0);
+        }
+
+        public static Record delete(long id) {
+            return new Record("delete", id, null, 0);
+        }
+
+        public static Record rate(long id, int rating) {
+            return new Record("rate", id, null, rating);
+        }
+
+        public static Record rateBatch(long id, long[] votes) {
+            Record record = new Record("rateBatch", id, null, 0);
+            record.votes = votes;
+            return record;
+        }
+
+        public static Record reset(long id) {
+            return new Record("reset", id, null, 0);
+        }
+
+        public String getOp() {
+            return op;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        void applyTo(HolidayRepository repository) {
+            switch (op) {
+                case "create" -> repository.restore(holiday);
+                case "update" -> repository.update(id, holiday);
+                case "delete" -> repository.remove(id);
+                case "rate" -> repository.rate(id, rating);
+                case "rateBatch" -> repository.rateBatch(id, votes);
+                case "reset" -> repository.resetRatings(id);
+                default -> System.out.println("Ignoring unknown log record: " + op);
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads parameters straight from the raw (still percent-encoded) query string of a request, without building a map.
+ * Each lookup is one pass over the query. Numbers are parsed directly from the characters, and values are
+ * only decoded when they are read as strings and actually contain "%" or "+".
+ * Looking up numbers never allocates and never throws: a missing parameter returns the given default
+ * and a malformed one returns {@link #INVALID_LONG} or {@link #INVALID_INT}, so junk requests get a cheap 400.
+ * When a parameter is repeated, the last value wins.
+ *
+ * Example:
+ * long id = QueryParser.getLong(exchange.getRequestURI().getRawQuery(), "id", QueryParser.INVALID_LONG);
+ */
+public class QueryParser {
+    /** Returned for a long parameter that is not a valid number. */
+    public static final long INVALID_LONG = Long.MIN_VALUE;
+    /** Returned for an int parameter that is not a valid number. */
+    public static final int INVALID_INT = Integer.MIN_VALUE;
+
+    /**
+     * Returns whether the parameter is present, with or without a value.
+     *
+     * @param query the raw query string, may be null
+     * @param name the parameter name
+     * @return true if the parameter is present
+     */
+    public static boolean has(String query, String name) {
+        return valueStart(query, name) >= 0;
+    }
+
+    /**
+     * Returns the decoded value of a parameter.
+     *
+     * @param query the raw query string, may be null
+     * @param name the parameter name
+     * @return the value, "" for a parameter without a value, or null if the parameter is missing
+     */
+    public static String get(String query, String name) {
+        int start = valueStart(query, name);
+        if (start < 0) {
+            return null;
+        }
+        return decode(query, start, valueEnd(query, start));
+    }
+
+    /**
+     * Parses a long parameter.
+     *
+     * @param query the raw query string, may be null
+     * @param name the parameter name
+     * @param missing the value returned when the parameter is missing
+     * @return the value, the missing value, or {@link #INVALID_LONG} if the value is not a valid long
+     */
+    public static long getLong(String query, String name, long missing) {
+        int start = valueStart(query, name);
+        if (start < 0) {
+            return missing;
+        }
+        return parseNumber(query, start, valueEnd(query, start));
+    }
+
+    /**
+     * Parses an int parameter.
+     *
+     * @param query the raw query string, may be null
+     * @param name the parameter name
+     * @param missing the value returned when the parameter is missing
+     * @return the value, the missing value, or {@link #INVALID_INT} if the value is not a valid int
+     */
+    public static int getInt(String query, String name, int missing) {
+        int start = valueStart(query, name);
+        if (start < 0) {
+            return missing;
+        }
+        long value = parseNumber(query, start, valueEnd(query, start));
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? INVALID_INT : (int) value;
+    }
+
+    /**
+     * Parses a decimal parameter such as a price.
+     *
+     * @param query the raw query string, may be null
+     * @param name the parameter name
+     * @param missing the value returned when the parameter is missing
+     * @return the value, the missing value, or NaN if the value is not a valid finite number
+     */
+    public static double getDouble(String query, String name, double missing) {
+        int start = valueStart(query, name);
+        if (start < 0) {
+            return missing;
+        }
+        int end = valueEnd(query, start);
+        if (start == end) {
+            return Double.NaN;
+        }
+        // Only digits, signs, a point and an exponent can make up a number; anything else is rejected up front.
+        // "%" and "B" let an escaped plus sign "%2B" through
+        for (int i = start; i < end; i++) {
+            char c = query.charAt(i);
+            if (!(c >= '0' && c <= '9' || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E' || c == '%'
+                    || c == 'B' || c == 'b')) {
+                return Double.NaN;
+            }
+        }
+        try {
+            double value = Double.parseDouble(decode(query, start, end));
+            return Double.isFinite(value) ? value : Double.NaN;
+        } catch (NumberFormatException e) {
+            // Rare: the right characters in a wrong order, such as "1-2"
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Parses a decimal long from part of a character sequence, without allocating.
+     * Like {@link Long#parseLong(String)}, an optional leading "-" or "+" sign is accepted.
+     *
+     * @param text the characters
+     * @param start the index of the first character
+     * @param end the index after the last character
+     * @return the value, or {@link #INVALID_LONG} if the characters are not a valid long
+     */
+    public static long parseLong(CharSequence text, int start, int end) {
+        char sign = start < end ? text.charAt(start) : '0';
+        boolean negative = sign == '-';
+        int i = negative || sign == '+' ? start + 1 : start;
+        if (i == end || end - i > 19) {
+            return INVALID_LONG;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID_LONG;
+            }
+            value = value * 10 + (c - '0');
+            if (value < 0) {
+                return INVALID_LONG;
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a long query value. A plus sign sent as "%2B" is accepted like a literal "+";
+     * any other escape makes the value invalid.
+     */
+    private static long parseNumber(String query, int start, int end) {
+        if (end - start > 3 && query.regionMatches(true, start, "%2B", 0, 3)) {
+            char c = query.charAt(start + 3);
+            return c == '+' || c == '-' ? INVALID_LONG : parseLong(query, start + 3, end);
+        }
+        return parseLong(query, start, end);
+    }
+
+    /**
+     * Finds the value of the last occurrence of a parameter in a single pass.
+     *
+     * @return the index where the value starts, or -1 if the parameter is missing
+     */
+    private static int valueStart(String query, String name) {
+        if (query == null) {
+            return -1;
+        }
+        int found = -1;
+        int keyStart = 0;
+        int keyEnd = -1;
+        int length = query.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? query.charAt(i) : '&';
+            if (c == '=' && keyEnd < 0) {
+                keyEnd = i;
+            } else if (c == '&') {
+                int end = keyEnd < 0 ? i : keyEnd;
+                if (keyMatches(query, keyStart, end, name)) {
+                    found = keyEnd < 0 ? i : keyEnd + 1;
+                }
+                keyStart = i + 1;
+                keyEnd = -1;
+            }
+        }
+        return found;
+    }
+
+    private static int valueEnd(String query, int start) {
+        int end = query.indexOf('&', start);
+        return end < 0 ? query.length() : end;
+    }
+
+    private static boolean keyMatches(String query, int start, int end, String name) {
+        if (end - start == name.length() && query.regionMatches(start, name, 0, name.length())) {
+            return true;
+        }
+        // Encoded names are unusual, so they are only decoded when a plain comparison cannot decide
+        return needsDecoding(query, start, end) && name.equals(decode(query, start, end));
+    }
+
+    private static boolean needsDecoding(String query, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = query.charAt(i);
+            if (c == '%' || c == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes "+" to a space and "%XX" escapes as UTF-8, like URLDecoder, but keeps malformed escapes as they are
+     * instead of throwing.
+     */
+    private static String decode(String query, int start, int end) {
+        if (!needsDecoding(query, start, end)) {
+            return query.substring(start, end);
+        }
+        byte[] bytes = new byte[(end - start) * 3];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = query.charAt(i);
+            if (c == '+') {
+                bytes[length++] = ' ';
+            } else if (c == '%' && i + 2 < end && hexValue(query.charAt(i + 1)) >= 0 && hexValue(query.charAt(i + 2)) >= 0) {
+                bytes[length++] = (byte) (hexValue(query.charAt(i + 1)) << 4 | hexValue(query.charAt(i + 2)));
+                i += 2;
+            } else if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else {
+                // Raw non-ASCII characters are re-encoded, keeping surrogate pairs together
+                int count = Character.isHighSurrogate(c) && i + 1 < end ? 2 : 1;
+                byte[] encoded = query.substring(i, i + count).getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(encoded, 0, bytes, length, encoded.length);
+                length += encoded.length;
+                i += count - 1;
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
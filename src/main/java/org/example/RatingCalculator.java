@@ -1,6 +1,11 @@
 package org.example;
 
+import java.util.Arrays;
+
 public class RatingCalculator {
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 5;
+
     /**
      * Calculates the average rating from an array of ratings.
      *
@@ -17,4 +22,131 @@ public class RatingCalculator {
         }
         return (double) sum / ratings.length;
     }
-}
\ No newline at end of file
+
+    /**
+     * Calculates the average rating from the number of votes per star.
+     *
+     * @param distribution the number of votes per star, index 0 holding the 1 star votes
+     * @return the average rating, or 0 if there are no votes
+     */
+    public static double averageOf(long[] distribution) {
+        long votes = 0;
+        long sum = 0;
+        for (int i = 0; i < distribution.length; i++) {
+            votes += distribution[i];
+            sum += (i + 1) * distribution[i];
+        }
+        return votes == 0 ? 0 : (double) sum / votes;
+    }
+
+    /**
+     * Running totals of a holiday's ratings: the number of votes, their sum and a 1-5 histogram.
+     * Adding a vote and reading the average or the distribution take constant time,
+     * no matter how many votes the holiday already has.
+     *
+     * <p>The totals are plain fields and not thread-safe. An aggregate is only read and changed by
+     * the writer of its holiday, which holds the holiday's lock; readers use the average stored on the holiday.
+     */
+    public static class RatingAggregate {
+        private long count;
+        private long sum;
+        private final long[] histogram = new long[MAX_RATING];
+
+        /**
+         * Builds an aggregate from stored ratings.
+         * The histogram is used when present, otherwise the raw ratings are counted.
+         *
+         * @param ratings the raw ratings, may be null
+         * @param distribution the number of votes per star (index 0 is 1 star), may be null
+         * @return the aggregate
+         */
+        public static RatingAggregate of(int[] ratings, long[] distribution) {
+            RatingAggregate aggregate = new RatingAggregate();
+            if (distribution != null) {
+                for (int i = 0; i < Math.min(distribution.length, MAX_RATING); i++) {
+                    aggregate.add(i + 1, distribution[i]);
+                }
+            } else if (ratings != null) {
+                for (int rating : ratings) {
+                    aggregate.add(rating);
+                }
+            }
+            return aggregate;
+        }
+
+        public void add(int rating) {
+            add(rating, 1);
+        }
+
+        /**
+         * Adds the same rating several times.
+         *
+         * @param rating the rating, expected to be in the 1-5 range
+         * @param votes the number of votes with this rating
+         */
+        public void add(int rating, long votes) {
+            if (votes == 0) {
+                return;
+            }
+            count += votes;
+            sum += rating * votes;
+            if (rating >= MIN_RATING && rating <= MAX_RATING) {
+                histogram[rating - 1] += votes;
+            }
+        }
+
+        public void reset() {
+            count = 0;
+            sum = 0;
+            Arrays.fill(histogram, 0);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the average rating.
+         *
+         * @return the average rating, or 0 if there are no votes
+         */
+        public double getAverage() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Returns the number of votes per star.
+         *
+         * @return a new array where index 0 holds the 1 star votes and index 4 the 5 star votes
+         */
+        public long[] getDistribution() {
+            return histogram.clone();
+        }
+
+        /**
+         * Expands the histogram back into a raw ratings array, ordered from 1 to 5 stars.
+         * The original voting order is not kept by the aggregate.
+         *
+         * @return the ratings
+         */
+        public int[] toRatings() {
+            long[] distribution = getDistribution();
+            long total = 0;
+            for (long votes : distribution) {
+                total += votes;
+            }
+            int[] ratings = new int[(int) total];
+            int position = 0;
+            for (int i = 0; i < distribution.length; i++) {
+                for (long j = 0; j < distribution[i]; j++) {
+                    ratings[position++] = i + 1;
+                }
+            }
+            return ratings;
+        }
+    }
+}
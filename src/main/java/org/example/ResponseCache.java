@@ -0,0 +1,321 @@
+package org.example;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Keeps serialized JSON responses as UTF-8 bytes, so unchanged data is not encoded again on every request.
+ * Every mutation bumps the catalog version. The full list is valid only for the version it was built at,
+ * while a single holiday's entry is dropped only when that holiday changes.
+ * Each entry carries an ETag and a modification time, so clients holding the current version can be answered with 304.
+ * Compressed bodies are made once per entry and encoding and reused until the data changes;
+ * bodies too small to be sent compressed never keep a compressed copy.
+ *
+ * <p>The single-holiday entries, including their compressed copies, are limited to a total number of bytes,
+ * so a large catalog is not held in memory a second time. When the limit is passed, entries are evicted
+ * in CLOCK order: a sweep clears the "recently used" mark of each entry it passes and evicts entries that
+ * have not been used since the previous sweep. Hits only set that mark, so reads stay lock-free.
+ * The full list is a single entry and is not counted.
+ *
+ * <p>Modification times are only tracked for the catalog as a whole, which keeps the cache small.
+ * A holiday's entry takes the catalog's time when it is built; that may be later than the holiday's own
+ * last change, which costs a client a full response where 304 would have done.
+ * The handler does not use a time as a validator while it lies in the current second.
+ */
+public class ResponseCache {
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = System.currentTimeMillis();
+    private final ConcurrentHashMap<Long, Entry> holidayEntries = new ConcurrentHashMap<>();
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // Guarded by evictionLock
+    private Iterator<Map.Entry<Long, Entry>> clockHand;
+    private volatile Entry listEntry;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxBytes the maximum total size of the cached single-holiday responses
+     */
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * Marks the holiday and the full list as changed.
+     * Call this after the change has been applied to the repository.
+     *
+     * @param id the ID of the changed holiday
+     */
+    public void invalidate(long id) {
+        // Set before the version, so whoever sees the new version also sees a time no older than the change
+        lastModified = System.currentTimeMillis();
+        version.incrementAndGet();
+        Entry removed = holidayEntries.remove(id);
+        if (removed != null) {
+            discard(removed);
+        }
+    }
+
+    /**
+     * Marks every cached response as changed.
+     */
+    public void invalidateAll() {
+        lastModified = System.currentTimeMillis();
+        version.incrementAndGet();
+        for (Long id : holidayEntries.keySet()) {
+            Entry removed = holidayEntries.remove(id);
+            if (removed != null) {
+                discard(removed);
+            }
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns the total size of the cached single-holiday responses.
+     *
+     * @return the size in bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Returns the ETag the full list has at the current version, without building the list.
+     *
+     * @return the weak ETag value
+     */
+    public String currentListETag() {
+        return etag(version.get());
+    }
+
+    /**
+     * Returns the time of the last change to the catalog, without building the list.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long currentLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the cached full list, building it when the catalog has changed since it was cached.
+     *
+     * @param serializer produces the JSON bytes of the full list
+     * @return the cache entry
+     */
+    public Entry getList(Supplier<byte[]> serializer) {
+        long current = version.get();
+        long modified = lastModified;
+        Entry entry = listEntry;
+        if (entry != null && entry.version == current) {
+            return entry;
+        }
+        entry = new Entry(current, etag(current), modified, serializer.get());
+        if (version.get() == current) {
+            listEntry = entry;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the cached JSON of a single holiday, building it when the holiday has changed.
+     *
+     * @param id the holiday ID
+     * @param serializer produces the JSON bytes of the holiday, or null if the holiday does not exist
+     * @return the cache entry, or null if the holiday does not exist
+     */
+    public Entry getHoliday(long id, Supplier<byte[]> serializer) {
+        Entry entry = holidayEntries.get(id);
+        if (entry != null) {
+            // Read first, so hits on a popular holiday do not keep writing the same cache line
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            return entry;
+        }
+        long current = version.get();
+        long modified = lastModified;
+        byte[] body = serializer.get();
+        if (body == null) {
+            return null;
+        }
+        if (body.length > maxBytes) {
+            return new Entry(current, etag(current), modified, body);
+        }
+        entry = new Entry(current, etag(current), modified, body, this);
+        usedBytes.addAndGet(body.length);
+        Entry previous = holidayEntries.put(id, entry);
+        if (previous != null) {
+            discard(previous);
+        }
+        // The holiday may have changed while it was serialized; do not keep a possibly stale entry
+        if (version.get() != current && holidayEntries.remove(id, entry)) {
+            discard(entry);
+        }
+        evictIfFull();
+        return entry;
+    }
+
+    private void discard(Entry entry) {
+        usedBytes.addAndGet(-entry.release());
+    }
+
+    /**
+     * Counts a compressed copy added to a cached entry.
+     */
+    private void charge(long bytes) {
+        usedBytes.addAndGet(bytes);
+        evictIfFull();
+    }
+
+    /**
+     * Evicts entries until the cache is within its limit again. Only one thread sweeps at a time;
+     * the others go on, since the sweeping thread frees the space for them too.
+     */
+    private void evictIfFull() {
+        if (usedBytes.get() <= maxBytes || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            while (usedBytes.get() > maxBytes) {
+                if (clockHand == null || !clockHand.hasNext()) {
+                    clockHand = holidayEntries.entrySet().iterator();
+                    if (!clockHand.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<Long, Entry> candidate = clockHand.next();
+                Entry entry = candidate.getValue();
+                if (entry.referenced) {
+                    entry.referenced = false;
+                } else if (holidayEntries.remove(candidate.getKey(), entry)) {
+                    discard(entry);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private String etag(long version) {
+        // Weak, because the same tag is used for the plain and the compressed body
+        return "W/\"" + epoch + "-" + version + "\"";
+    }
+
+    /**
+     * A serialized response body together with its version, ETag and modification time.
+     */
+    public static class Entry {
+        private final long version;
+        private final String etag;
+        private final long lastModified;
+        private final byte[] body;
+        // The cache this entry is counted in, or null if it is not counted
+        private final ResponseCache owner;
+        private volatile byte[] gzipBody;
+        private volatile byte[] deflateBody;
+        private volatile boolean referenced;
+        // Guarded by this entry
+        private boolean released;
+
+        Entry(long version, String etag, long lastModified, byte[] body) {
+            this(version, etag, lastModified, body, null);
+        }
+
+        Entry(long version, String etag, long lastModified, byte[] body, ResponseCache owner) {
+            this.version = version;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+            this.owner = owner;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        /**
+         * Returns when the data in this entry last changed.
+         *
+         * @return the time in milliseconds since the epoch
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * Returns the body in the given encoding, compressing it on first use.
+         * Two threads may compress the same body at once; both results are equal, and the first one is kept.
+         * Bodies below {@link ContentEncoding#MIN_COMPRESSED_SIZE} are compressed on every call instead of kept,
+         * since they are normally sent uncompressed.
+         *
+         * @param encoding {@link ContentEncoding#GZIP}, {@link ContentEncoding#DEFLATE}, or null for the plain body
+         * @return the encoded bytes
+         */
+        public byte[] getBody(String encoding) {
+            boolean gzip = ContentEncoding.GZIP.equals(encoding);
+            if (!gzip && !ContentEncoding.DEFLATE.equals(encoding)) {
+                return body;
+            }
+            byte[] compressed = gzip ? gzipBody : deflateBody;
+            if (compressed != null) {
+                return compressed;
+            }
+            compressed = ContentEncoding.compress(body, encoding);
+            if (body.length < ContentEncoding.MIN_COMPRESSED_SIZE) {
+                return compressed;
+            }
+            synchronized (this) {
+                // An entry that already left the cache is not counted any more, so it keeps nothing new
+                if (released) {
+                    return compressed;
+                }
+                byte[] kept = gzip ? gzipBody : deflateBody;
+                if (kept != null) {
+                    return kept;
+                }
+                if (gzip) {
+                    gzipBody = compressed;
+                } else {
+                    deflateBody = compressed;
+                }
+            }
+            if (owner != null) {
+                owner.charge(compressed.length);
+            }
+            return compressed;
+        }
+
+        /**
+         * Marks the entry as removed from the cache.
+         *
+         * @return the number of bytes the entry was counted with
+         */
+        private synchronized long release() {
+            released = true;
+            long size = body.length;
+            size += gzipBody != null ? gzipBody.length : 0;
+            size += deflateBody != null ? deflateBody.length : 0;
+            return size;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory secondary indexes over the catalog: exact match on country, city and season (case-insensitive),
+ * and sorted indexes on price and average rating for range queries.
+ * The indexes follow every change through {@link HolidayListener}, so a search only visits the holidays
+ * of its most selective filter instead of the whole catalog. The holidays of each exact value are kept in
+ * ID order, so a search stops as soon as its page is full.
+ * The sorted indexes also serve the catalog-wide top-N lists of {@link Leaderboard}.
+ */
+public class SearchIndex implements HolidayListener {
+    private final ConcurrentHashMap<String, ValueIds> byCountry = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ValueIds> byCity = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ValueIds> bySeason = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<SortKey> byPrice = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<SortKey> byRating = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the indexes from the current catalog and registers for its changes.
+     * Must be called once, before the server starts accepting requests.
+     *
+     * @param repository the catalog to index
+     */
+    public void attach(HolidayRepository repository) {
+        for (Holiday holiday : repository.getAll()) {
+            index(holiday);
+        }
+        repository.addListener(this);
+    }
+
+    /**
+     * Finds the IDs of holidays that match every filter of the query.
+     * Results of a price or rating range query without exact filters are ordered by that value,
+     * all other results by ID.
+     *
+     * @param query the filters
+     * @param limit the maximum number of IDs to return
+     * @return the matching IDs
+     */
+    public List<Long> search(Query query, int limit) {
+        ValueIds candidates = narrower(null, query.country, byCountry);
+        candidates = narrower(candidates, query.city, byCity);
+        candidates = narrower(candidates, query.season, bySeason);
+
+        List<Long> result = new ArrayList<>();
+        if (candidates != null) {
+            // Walked in ID order, so the first matches are already the page
+            for (Long id : candidates.ids) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                Entry entry = entries.get(id);
+                if (entry != null && query.matches(entry)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        // Without exact filters, walk the sorted index of the range that was asked for
+        Set<SortKey> range;
+        if (query.minRating != null || query.maxRating != null) {
+            range = byRating.subSet(SortKey.lowest(query.minRating), true, SortKey.highest(query.maxRating), true);
+        } else {
+            range = byPrice.subSet(SortKey.lowest(query.minPrice), true, SortKey.highest(query.maxPrice), true);
+        }
+        for (SortKey key : range) {
+            if (result.size() >= limit) {
+                break;
+            }
+            Entry entry = entries.get(key.id());
+            if (entry != null && query.matches(entry)) {
+                result.add(key.id());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cheapest holidays of the catalog, ties broken by ID.
+     *
+     * @param n the maximum number of holidays
+     * @return the IDs, cheapest first
+     */
+    public List<Long> cheapest(int n) {
+        List<Long> result = new ArrayList<>(Math.max(0, Math.min(n, 1024)));
+        for (SortKey key : byPrice) {
+            if (result.size() >= n) {
+                break;
+            }
+            result.add(key.id());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the best rated holidays of the catalog, ties broken by ID.
+     * The rating index is in ascending order, so it is walked from the top one rating at a time,
+     * and the holidays sharing a rating are taken in ascending ID order.
+     *
+     * @param n the maximum number of holidays
+     * @return the IDs, best rated first
+     */
+    public List<Long> bestRated(int n) {
+        List<Long> result = new ArrayList<>(Math.max(0, Math.min(n, 1024)));
+        SortKey next = n > 0 ? byRating.lower(SortKey.highest(null)) : null;
+        while (next != null) {
+            for (SortKey key : byRating.subSet(SortKey.lowest(next.value()), true, SortKey.highest(next.value()), true)) {
+                if (result.size() >= n) {
+                    return result;
+                }
+                result.add(key.id());
+            }
+            next = byRating.lower(SortKey.lowest(next.value()));
+        }
+        return result;
+    }
+
+    @Override
+    public void onCreated(Holiday holiday) {
+        index(holiday);
+    }
+
+    @Override
+    public void onUpdated(Holiday holiday) {
+        unindex(holiday.getId());
+        index(holiday);
+    }
+
+    @Override
+    public void onDeleted(Holiday holiday) {
+        unindex(holiday.getId());
+    }
+
+    @Override
+    public void onRated(Holiday holiday, int rating) {
+        reindexRating(holiday);
+    }
+
+    @Override
+    public void onRatedBatch(Holiday holiday, long[] votes) {
+        reindexRating(holiday);
+    }
+
+    @Override
+    public void onRatingsReset(Holiday holiday) {
+        reindexRating(holiday);
+    }
+
+    private void index(Holiday holiday) {
+        Entry entry = new Entry(holiday.getId(), normalize(holiday.getCountry()), normalize(holiday.getCity()),
+                normalize(holiday.getSeason()), holiday.getPrice(), holiday.getAverageRating());
+        entries.put(entry.id, entry);
+        add(byCountry, entry.country, entry.id);
+        add(byCity, entry.city, entry.id);
+        add(bySeason, entry.season, entry.id);
+        byPrice.add(new SortKey(entry.price, entry.id));
+        byRating.add(new SortKey(entry.rating, entry.id));
+    }
+
+    private void unindex(long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        remove(byCountry, entry.country, id);
+        remove(byCity, entry.city, id);
+        remove(bySeason, entry.season, id);
+        byPrice.remove(new SortKey(entry.price, id));
+        byRating.remove(new SortKey(entry.rating, id));
+    }
+
+    private void reindexRating(Holiday holiday) {
+        Entry entry = entries.get(holiday.getId());
+        if (entry == null || entry.rating == holiday.getAverageRating()) {
+            return;
+        }
+        Entry updated = new Entry(entry.id, entry.country, entry.city, entry.season, entry.price, holiday.getAverageRating());
+        entries.put(entry.id, updated);
+        byRating.remove(new SortKey(entry.rating, entry.id));
+        byRating.add(new SortKey(updated.rating, entry.id));
+    }
+
+    private static ValueIds narrower(ValueIds current, String value, ConcurrentHashMap<String, ValueIds> index) {
+        if (value == null) {
+            return current;
+        }
+        ValueIds ids = index.getOrDefault(value, ValueIds.NONE);
+        return current == null || ids.size < current.size ? ids : current;
+    }
+
+    private static void add(ConcurrentHashMap<String, ValueIds> index, String key, long id) {
+        if (key != null) {
+            // Added inside compute, so a concurrent remove cannot drop the set this ID is added to
+            index.compute(key, (k, ids) -> {
+                ValueIds result = ids != null ? ids : new ValueIds();
+                if (result.ids.add(id)) {
+                    result.size++;
+                }
+                return result;
+            });
+        }
+    }
+
+    private static void remove(ConcurrentHashMap<String, ValueIds> index, String key, long id) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, ids) -> {
+                if (ids.ids.remove(id)) {
+                    ids.size--;
+                }
+                return ids.size == 0 ? null : ids;
+            });
+        }
+    }
+
+    static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalizes a filter value; an empty value means no filter, as for a missing parameter.
+     */
+    static String normalizeFilter(String value) {
+        String normalized = normalize(value);
+        return normalized == null || normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Search filters; null or empty fields are not filtered on.
+     */
+    public static class Query {
+        private final String country;
+        private final String city;
+        private final String season;
+        private final Double minPrice;
+        private final Double maxPrice;
+        private final Double minRating;
+        private final Double maxRating;
+
+        public Query(String country, String city, String season,
+                     Double minPrice, Double maxPrice, Double minRating, Double maxRating) {
+            this.country = normalizeFilter(country);
+            this.city = normalizeFilter(city);
+            this.season = normalizeFilter(season);
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            this.minRating = minRating;
+            this.maxRating = maxRating;
+        }
+
+        private boolean matches(Entry entry) {
+            return (country == null || country.equals(entry.country))
+                    && (city == null || city.equals(entry.city))
+                    && (season == null || season.equals(entry.season))
+                    && (minPrice == null || entry.price >= minPrice)
+                    && (maxPrice == null || entry.price <= maxPrice)
+                    && (minRating == null || entry.rating >= minRating)
+                    && (maxRating == null || entry.rating <= maxRating);
+        }
+    }
+
+    /**
+     * The IDs indexed under one exact value, in ID order. The count is kept separately, because
+     * {@link ConcurrentSkipListSet#size()} walks the whole set. Both only change inside the index map's compute.
+     */
+    private static final class ValueIds {
+        private static final ValueIds NONE = new ValueIds();
+
+        private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+        private volatile int size;
+    }
+
+    /**
+     * The values a holiday is currently indexed under, kept so its old keys can be removed on change.
+     */
+    private record Entry(long id, String country, String city, String season, double price, double rating) {
+    }
+}
@@ -0,0 +1,37 @@
+package org.example;
+
+/**
+ * A position in a sorted index of holidays, ordered by value and then by holiday ID.
+ * Used as the element of skip-list indexes, so holidays with equal values still have distinct keys.
+ *
+ * @param value the indexed value, e.g. the price
+ * @param id the holiday ID
+ */
+public record SortKey(double value, long id) implements Comparable<SortKey> {
+
+    /**
+     * Returns the smallest key with the given value, for use as an inclusive lower range bound.
+     *
+     * @param value the value, or null for no lower bound
+     * @return the key
+     */
+    public static SortKey lowest(Double value) {
+        return new SortKey(value == null ? Double.NEGATIVE_INFINITY : value, Long.MIN_VALUE);
+    }
+
+    /**
+     * Returns the largest key with the given value, for use as an inclusive upper range bound.
+     *
+     * @param value the value, or null for no upper bound
+     * @return the key
+     */
+    public static SortKey highest(Double value) {
+        return new SortKey(value == null ? Double.POSITIVE_INFINITY : value, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int compareTo(SortKey other) {
+        int byValue = Double.compare(value, other.value);
+        return byValue != 0 ? byValue : Long.compare(id, other.id);
+    }
+}
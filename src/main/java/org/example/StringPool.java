@@ -0,0 +1,31 @@
+package org.example;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of shared String instances for low-cardinality holiday fields such as country, city,
+ * season and duration. Values like "Summer", "7 days" or "Greece" repeat across the whole catalog,
+ * so keeping one instance of each instead of a copy per holiday saves heap on large catalogs.
+ * Unlike {@link String#intern()}, the pool belongs to the catalog and does not grow the JVM-wide string table.
+ */
+public class StringPool {
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the pooled instance equal to the value, adding the value to the pool if it is new.
+     *
+     * @param value the value, may be null
+     * @return the shared instance, or null if the value is null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = values.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
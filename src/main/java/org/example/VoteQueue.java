@@ -0,0 +1,183 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Takes votes off the request path. Request threads only put a vote into a bounded queue and answer 202;
+ * a single consumer thread takes everything queued so far, adds up the votes per holiday and applies each
+ * holiday's votes with one {@link HolidayRepository#rateBatch(long, long[])} call, followed by one save for
+ * the whole batch. A spike of votes therefore costs one lock, one log record and one index update per holiday
+ * instead of per vote, and does not hold up reads.
+ *
+ * <p>When the queue is full, a vote is either rejected at once or the request waits up to a timeout for space,
+ * depending on "holidays.voteBackpressure". Votes are counted in the average only after the consumer applied them.
+ */
+public class VoteQueue implements AutoCloseable {
+    private static final long POLL_MILLIS = 100;
+
+    private final HolidayRepository repository;
+    private final HolidayStore store;
+    private final ResponseCache responseCache;
+    private final ArrayBlockingQueue<Vote> queue;
+    private final int capacity;
+    private final boolean block;
+    private final long blockTimeoutMillis;
+    private final int batchSize;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final Thread consumer;
+    private volatile boolean closed;
+
+    /**
+     * Creates the queue and starts its consumer thread.
+     *
+     * @param repository the catalog the votes are applied to
+     * @param store the store that saves each applied batch
+     * @param responseCache the cached responses to invalidate for rated holidays
+     * @param capacity the maximum number of votes waiting in the queue
+     * @param block whether a full queue makes requests wait instead of rejecting them at once
+     * @param blockTimeoutMillis how long a request waits for space when blocking
+     * @param batchSize the maximum number of votes applied together
+     */
+    public VoteQueue(HolidayRepository repository, HolidayStore store, ResponseCache responseCache,
+                     int capacity, boolean block, long blockTimeoutMillis, int batchSize) {
+        this.repository = repository;
+        this.store = store;
+        this.responseCache = responseCache;
+        this.capacity = Math.max(1, capacity);
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+        this.block = block;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.batchSize = Math.max(1, batchSize);
+        this.consumer = Thread.ofPlatform().name("vote-queue").daemon().start(this::consume);
+    }
+
+    /**
+     * Queues a vote.
+     *
+     * @param id the holiday ID
+     * @param rating the rating, in the 1-5 range
+     * @return true if the vote was queued, false if the queue stayed full or is closed
+     */
+    public boolean submit(long id, int rating) {
+        if (closed) {
+            return false;
+        }
+        Vote vote = new Vote(id, rating);
+        boolean queued;
+        if (block) {
+            try {
+                queued = queue.offer(vote, blockTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+        } else {
+            queued = queue.offer(vote);
+        }
+        if (queued) {
+            accepted.increment();
+        } else {
+            rejected.increment();
+        }
+        return queued;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * Stops accepting votes and waits until the queued ones are applied and saved.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+        List<Vote> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            Vote first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                apply(batch);
+            } catch (RuntimeException e) {
+                System.out.println("Error applying votes: " + e);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Adds up the votes per holiday, applies them and saves once.
+     */
+    private void apply(List<Vote> batch) {
+        LongObjectMap<long[]> votesById = new LongObjectMap<>(batch.size());
+        List<Long> ids = new ArrayList<>();
+        for (Vote vote : batch) {
+            long[] votes = votesById.get(vote.id());
+            if (votes == null) {
+                votes = new long[RatingCalculator.MAX_RATING];
+                votesById.put(vote.id(), votes);
+                ids.add(vote.id());
+            }
+            votes[vote.rating() - 1]++;
+        }
+        long changes = 0;
+        for (long id : ids) {
+            // Holidays deleted since the vote was accepted are skipped
+            if (repository.rateBatch(id, votesById.get(id))) {
+                responseCache.invalidate(id);
+                changes++;
+            }
+        }
+        batches.increment();
+        if (changes > 0) {
+            try {
+                store.markDirty(changes);
+            } catch (IOException e) {
+                System.out.println("Error saving votes: " + e);
+            }
+        }
+    }
+
+    private record Vote(long id, int rating) {
+    }
+}
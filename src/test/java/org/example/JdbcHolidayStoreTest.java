@@ -0,0 +1,162 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link JdbcHolidayStore} against an in-memory H2 database in MySQL mode, so the SQL is checked
+ * without a MySQL server. Each test gets its own database, which lives until the JVM exits.
+ */
+public class JdbcHolidayStoreTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private String url;
+    private JdbcHolidayStore store;
+
+    @BeforeEach
+    public void createDatabase() throws IOException {
+        url = "jdbc:h2:mem:holidays" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        store = open();
+    }
+
+    @AfterEach
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void createSchemaCanRunTwice() throws IOException {
+        store.createSchema();
+
+        assertTrue(store.loadAll().isEmpty());
+    }
+
+    @Test
+    public void loadAllReturnsImportedHolidaysWithRatingCounts() throws IOException {
+        Holiday rome = holiday("Rome", 499.5, new int[]{5, 4, 4});
+        rome.setId(1);
+        rome.setVersion(3);
+        Holiday oslo = holiday("Oslo", 899, null);
+        oslo.setId(2);
+
+        store.importAll(List.of(oslo, rome));
+        List<Holiday> loaded = store.loadAll();
+
+        assertEquals(2, loaded.size());
+        Holiday first = loaded.get(0);
+        assertEquals(1, first.getId());
+        assertEquals("Rome", first.getTitle());
+        assertEquals("Italy", first.getCountry());
+        assertEquals("Summer", first.getSeason());
+        assertEquals(499.5, first.getPrice());
+        assertArrayEquals(new String[]{"a.jpg", "b.jpg"}, first.getPhotos());
+        assertEquals(3, first.getVersion());
+        assertArrayEquals(new long[]{0, 0, 0, 2, 1}, first.getRatingHistogram());
+        assertEquals(2, loaded.get(1).getId());
+        assertArrayEquals(new long[5], loaded.get(1).getRatingHistogram());
+    }
+
+    @Test
+    public void markDirtyWritesCreatesUpdatesAndRatings() throws IOException {
+        HolidayRepository repository = attachRepository();
+        long id = repository.add(holiday("Rome", 499.5, null));
+        repository.rate(id, 5);
+        repository.rate(id, 3);
+        store.markDirty();
+
+        Holiday changes = holiday("Rome and Naples", 650, null);
+        repository.update(id, changes);
+        repository.rate(id, 5);
+        store.markDirty();
+
+        Holiday saved = reload().get(0);
+        assertEquals(id, saved.getId());
+        assertEquals("Rome and Naples", saved.getTitle());
+        assertEquals(650, saved.getPrice());
+        assertEquals(1, saved.getVersion());
+        assertArrayEquals(new long[]{0, 0, 1, 0, 2}, saved.getRatingHistogram());
+    }
+
+    @Test
+    public void markDirtyWritesResetsAndDeletes() throws IOException {
+        HolidayRepository repository = attachRepository();
+        long kept = repository.add(holiday("Rome", 499.5, null));
+        long deleted = repository.add(holiday("Oslo", 899, null));
+        repository.rate(kept, 4);
+        repository.rate(deleted, 2);
+        store.markDirty();
+
+        repository.resetRatings(kept);
+        repository.remove(deleted);
+        store.markDirty();
+
+        List<Holiday> saved = reload();
+        assertEquals(1, saved.size());
+        assertEquals(kept, saved.get(0).getId());
+        assertArrayEquals(new long[5], saved.get(0).getRatingHistogram());
+    }
+
+    @Test
+    public void failedWriteIsRetriedWithTheNextOne() throws IOException, SQLException {
+        HolidayRepository repository = attachRepository();
+        long id = repository.add(holiday("Rome", 499.5, null));
+        repository.rate(id, 5);
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE holiday_ratings");
+        }
+
+        assertThrows(IOException.class, store::markDirty);
+        assertTrue(reload().isEmpty());
+
+        store.createSchema();
+        store.markDirty();
+
+        List<Holiday> saved = reload();
+        assertEquals(1, saved.size());
+        assertArrayEquals(new long[]{0, 0, 0, 0, 1}, saved.get(0).getRatingHistogram());
+    }
+
+    private JdbcHolidayStore open() throws IOException {
+        JdbcHolidayStore opened = new JdbcHolidayStore(new ConnectionPool(url, "sa", "", 2, 1000));
+        opened.createSchema();
+        return opened;
+    }
+
+    private HolidayRepository attachRepository() throws IOException {
+        HolidayRepository repository = new HolidayRepository(store.loadAll(), true);
+        store.attach(repository);
+        return repository;
+    }
+
+    /**
+     * Reads the database through a second store, as a restarted server would.
+     */
+    private List<Holiday> reload() throws IOException {
+        JdbcHolidayStore second = open();
+        try {
+            return second.loadAll();
+        } finally {
+            second.close();
+        }
+    }
+
+    private static Holiday holiday(String title, double price, int[] rating) {
+        return new Holiday(title, "Italy", "Rome", "7 days", "Summer", "City break", price,
+                new String[]{"a.jpg", "b.jpg"}, rating);
+    }
+}